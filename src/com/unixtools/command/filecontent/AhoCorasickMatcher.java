@@ -0,0 +1,208 @@
+package com.unixtools.command.filecontent;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class AhoCorasickMatcher implements LineMatcher {
+  private static final int ROOT = 0;
+  private static final int ROOT_TABLE_SIZE = 128;
+  private static final int LINEAR_SEARCH_LIMIT = 8;
+
+  private final boolean ignoreCase;
+  private final boolean matchesEverything;
+  private final Set<String> wholeLines = new HashSet<>();
+  private final int[] rootTable = new int[ROOT_TABLE_SIZE];
+  private int[] edgeStart;
+  private char[] edgeLabels;
+  private int[] edgeTargets;
+  private int[] failure;
+  private boolean[] terminal;
+
+  AhoCorasickMatcher(List<String> patterns, boolean ignoreCase) {
+    this.ignoreCase = ignoreCase;
+    boolean hasEmptyPattern = false;
+    for (String pattern : patterns) {
+      hasEmptyPattern |= pattern.isEmpty();
+      wholeLines.add(fold(pattern));
+    }
+    this.matchesEverything = hasEmptyPattern;
+    build(patterns);
+  }
+
+  static boolean isLiteral(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if ("\\^$.|?*+()[]{}".indexOf(pattern.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean find(String line) {
+    if (matchesEverything) {
+      return true;
+    }
+    int state = ROOT;
+    for (int i = 0; i < line.length(); i++) {
+      char ch = fold(line.charAt(i));
+      int next;
+      while ((next = transition(state, ch)) < 0 && state != ROOT) {
+        state = failure[state];
+      }
+      state = next < 0 ? ROOT : next;
+      if (terminal[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean matchesWholeLine(String line) {
+    return wholeLines.contains(fold(line));
+  }
+
+  private void build(List<String> patterns) {
+    GrowableTrie trie = new GrowableTrie();
+    for (String pattern : patterns) {
+      int node = ROOT;
+      for (int i = 0; i < pattern.length(); i++) {
+        node = trie.childOrCreate(node, fold(pattern.charAt(i)));
+      }
+      trie.terminal[node] = true;
+    }
+    compact(trie);
+    computeFailureLinks();
+  }
+
+  private void compact(GrowableTrie trie) {
+    int nodeCount = trie.size;
+    edgeStart = new int[nodeCount + 1];
+    edgeLabels = new char[nodeCount - 1];
+    edgeTargets = new int[nodeCount - 1];
+    terminal = Arrays.copyOf(trie.terminal, nodeCount);
+    int edge = 0;
+    for (int node = 0; node < nodeCount; node++) {
+      edgeStart[node] = edge;
+      int first = edge;
+      for (int child = trie.firstChild[node]; child != -1; child = trie.nextSibling[child]) {
+        int insertAt = edge++;
+        while (insertAt > first && edgeLabels[insertAt - 1] > trie.label[child]) {
+          edgeLabels[insertAt] = edgeLabels[insertAt - 1];
+          edgeTargets[insertAt] = edgeTargets[insertAt - 1];
+          insertAt--;
+        }
+        edgeLabels[insertAt] = trie.label[child];
+        edgeTargets[insertAt] = child;
+      }
+    }
+    edgeStart[nodeCount] = edge;
+
+    Arrays.fill(rootTable, -1);
+    for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1]; i++) {
+      if (edgeLabels[i] < ROOT_TABLE_SIZE) {
+        rootTable[edgeLabels[i]] = edgeTargets[i];
+      }
+    }
+  }
+
+  private void computeFailureLinks() {
+    failure = new int[terminal.length];
+    int[] queue = new int[terminal.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1]; i++) {
+      failure[edgeTargets[i]] = ROOT;
+      queue[tail++] = edgeTargets[i];
+    }
+    while (head < tail) {
+      int node = queue[head++];
+      for (int i = edgeStart[node]; i < edgeStart[node + 1]; i++) {
+        char ch = edgeLabels[i];
+        int child = edgeTargets[i];
+        int fallback = failure[node];
+        int next;
+        while ((next = transition(fallback, ch)) < 0 && fallback != ROOT) {
+          fallback = failure[fallback];
+        }
+        failure[child] = next < 0 ? ROOT : next;
+        terminal[child] |= terminal[failure[child]];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  private int transition(int node, char ch) {
+    if (node == ROOT && ch < ROOT_TABLE_SIZE) {
+      return rootTable[ch];
+    }
+    int low = edgeStart[node];
+    int high = edgeStart[node + 1] - 1;
+    if (high - low < LINEAR_SEARCH_LIMIT) {
+      for (int i = low; i <= high; i++) {
+        if (edgeLabels[i] == ch) {
+          return edgeTargets[i];
+        }
+      }
+      return -1;
+    }
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (edgeLabels[mid] < ch) {
+        low = mid + 1;
+      } else if (edgeLabels[mid] > ch) {
+        high = mid - 1;
+      } else {
+        return edgeTargets[mid];
+      }
+    }
+    return -1;
+  }
+
+  private char fold(char ch) {
+    return ignoreCase && ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+  }
+
+  private String fold(String text) {
+    if (!ignoreCase) {
+      return text;
+    }
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = fold(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  private static class GrowableTrie {
+    int size = 1;
+    int[] firstChild = { -1 };
+    int[] nextSibling = { -1 };
+    char[] label = { 0 };
+    boolean[] terminal = { false };
+
+    int childOrCreate(int node, char ch) {
+      for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+        if (label[child] == ch) {
+          return child;
+        }
+      }
+      if (size == label.length) {
+        int capacity = size * 2;
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        label = Arrays.copyOf(label, capacity);
+        terminal = Arrays.copyOf(terminal, capacity);
+      }
+      int child = size++;
+      firstChild[child] = -1;
+      nextSibling[child] = firstChild[node];
+      label[child] = ch;
+      firstChild[node] = child;
+      return child;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.unixtools.command.filecontent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class BoyerMooreHorspoolMatcher implements LineMatcher {
+  private final boolean ignoreCase;
+  private final String literal;
+  private final byte[] needle;
+  private final int[] shift = new int[256];
+
+  BoyerMooreHorspoolMatcher(String literal, boolean ignoreCase) {
+    this.ignoreCase = ignoreCase;
+    this.literal = fold(literal);
+    this.needle = this.literal.getBytes(StandardCharsets.UTF_8);
+    Arrays.fill(shift, needle.length);
+    for (int i = 0; i < needle.length - 1; i++) {
+      shift[needle[i] & 0xFF] = needle.length - 1 - i;
+    }
+  }
+
+  static boolean isSearchable(String literal) {
+    return !literal.isEmpty() && literal.indexOf('\n') == -1 && literal.indexOf('\r') == -1;
+  }
+
+  int indexOf(ByteBuffer haystack, int from, int to) {
+    int last = needle.length - 1;
+    byte lastByte = needle[last];
+    int i = from;
+    while (i <= to - needle.length) {
+      byte b = fold(haystack.get(i + last));
+      if (b == lastByte) {
+        int j = last - 1;
+        while (j >= 0 && fold(haystack.get(i + j)) == needle[j]) {
+          j--;
+        }
+        if (j < 0) {
+          return i;
+        }
+      }
+      i += shift[b & 0xFF];
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean find(String line) {
+    return fold(line).contains(literal);
+  }
+
+  @Override
+  public boolean matchesWholeLine(String line) {
+    return fold(line).equals(literal);
+  }
+
+  private byte fold(byte b) {
+    return ignoreCase && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+  }
+
+  private String fold(String text) {
+    if (!ignoreCase) {
+      return text;
+    }
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      if (chars[i] >= 'A' && chars[i] <= 'Z') {
+        chars[i] += 'a' - 'A';
+      }
+    }
+    return new String(chars);
+  }
+}
@@ -3,13 +3,19 @@ package com.unixtools.command.filecontent;
 import com.unixtools.core.Command;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CatCommand implements Command {
   private static final String VALID_FLAGS = "nber";
+  private static final int COPY_BUFFER_SIZE = 1024 * 1024;
   private boolean numberLines = false;
   private boolean numberNonBlankLines = false;
   private boolean showEndOfLine = false;
@@ -26,8 +32,14 @@ public class CatCommand implements Command {
       return;
     }
 
+    boolean passthrough = !numberLines && !numberNonBlankLines && !showEndOfLine && !replaceMultipleEmptyLines;
+    FileChannel standardOutput = passthrough ? new FileOutputStream(FileDescriptor.out).getChannel() : null;
     for (String filePath : filePaths) {
-      readFileContents(normalizePath(filePath));
+      if (passthrough) {
+        copyFileContents(normalizePath(filePath), standardOutput);
+      } else {
+        readFileContents(normalizePath(filePath));
+      }
     }
   }
 
@@ -102,6 +114,39 @@ public class CatCommand implements Command {
     }
   }
 
+  private void copyFileContents(String filePath, FileChannel standardOutput) {
+    System.out.flush();
+    Path path = Paths.get(filePath);
+    try {
+      if (Files.isRegularFile(path)) {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+          long size = in.size();
+          long position = 0;
+          while (position < size) {
+            long transferred = in.transferTo(position, size - position, standardOutput);
+            if (transferred <= 0) {
+              break;
+            }
+            position += transferred;
+          }
+        }
+      } else {
+        try (ReadableByteChannel in = Files.newByteChannel(path)) {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+          while (in.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+              standardOutput.write(buffer);
+            }
+            buffer.clear();
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("Error reading file: " + e.getMessage());
+    }
+  }
+
   private String normalizePath(String path) {
     String normalizedPath = path.replace("\\", "/");
     Path pathObj = Paths.get(normalizedPath).normalize();
@@ -0,0 +1,56 @@
+package com.unixtools.command.filecontent;
+
+class CountMinSketch {
+  private static final int MAX_DEPTH = 16;
+  private static final int MAX_CELLS = 1 << 19;
+
+  private final int width;
+  private final int depth;
+  private final long[] counts;
+
+  CountMinSketch(int width, int depth) {
+    this.width = width;
+    this.depth = depth;
+    this.counts = new long[width * depth];
+  }
+
+  static CountMinSketch withError(double epsilon, double confidence) {
+    int depth = Math.max(1, Math.min(MAX_DEPTH, (int) Math.ceil(Math.log(1 / (1 - confidence)))));
+    int width = (int) Math.min(MAX_CELLS / depth, Math.ceil(Math.E / epsilon));
+    return new CountMinSketch(Math.max(1, width), depth);
+  }
+
+  CountMinSketch emptyCopy() {
+    return new CountMinSketch(width, depth);
+  }
+
+  long add(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, ++counts[index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  long estimate(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counts[index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  void merge(CountMinSketch other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+  }
+
+  private int index(long hash, int row) {
+    int combined = (int) hash + row * (int) (hash >>> 32);
+    return row * width + (combined & Integer.MAX_VALUE) % width;
+  }
+}
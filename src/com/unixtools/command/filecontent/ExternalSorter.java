@@ -0,0 +1,188 @@
+package com.unixtools.command.filecontent;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+class ExternalSorter implements Closeable {
+  private static final int MAX_MERGE_FAN_IN = 128;
+
+  private final Function<String, SortKey> keyExtractor;
+  private final Comparator<SortKey> comparator;
+  private final long memoryBudget;
+  private final Path tempDirectory;
+  private final List<Path> runFiles = new ArrayList<>();
+  private final List<BufferedReader> openReaders = new ArrayList<>();
+
+  ExternalSorter(Function<String, SortKey> keyExtractor, Comparator<SortKey> comparator, long memoryBudget,
+      Path tempDirectory) {
+    this.keyExtractor = keyExtractor;
+    this.comparator = comparator;
+    this.memoryBudget = memoryBudget;
+    this.tempDirectory = tempDirectory;
+  }
+
+  Iterator<SortKey> sort(List<Path> inputs) throws IOException {
+    List<Path> runs = new ArrayList<>();
+    List<SortKey> buffer = new ArrayList<>();
+    long bufferedBytes = 0;
+    for (Path input : inputs) {
+      try (BufferedReader reader = Files.newBufferedReader(input)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          SortKey key = keyExtractor.apply(line);
+          buffer.add(key);
+          bufferedBytes += key.estimatedSize();
+          if (bufferedBytes >= memoryBudget) {
+            runs.add(spill(buffer));
+            buffer.clear();
+            bufferedBytes = 0;
+          }
+        }
+      }
+    }
+    buffer.sort(comparator);
+    if (runs.isEmpty()) {
+      return buffer.iterator();
+    }
+    if (!buffer.isEmpty()) {
+      runs.add(spill(buffer));
+      buffer.clear();
+    }
+    return mergeSorted(runs);
+  }
+
+  Iterator<SortKey> mergeSorted(List<Path> inputs) throws IOException {
+    List<Path> runs = inputs;
+    while (runs.size() > MAX_MERGE_FAN_IN) {
+      runs = mergePass(runs);
+    }
+    return merge(runs);
+  }
+
+  Path copyToRun(Path input) throws IOException {
+    Path runFile = createRunFile();
+    Files.copy(input, runFile, StandardCopyOption.REPLACE_EXISTING);
+    return runFile;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (BufferedReader reader : openReaders) {
+      reader.close();
+    }
+    openReaders.clear();
+    for (Path runFile : runFiles) {
+      Files.deleteIfExists(runFile);
+    }
+    runFiles.clear();
+  }
+
+  private Path spill(List<SortKey> keys) throws IOException {
+    keys.sort(comparator);
+    Path runFile = createRunFile();
+    try (BufferedWriter writer = Files.newBufferedWriter(runFile, StandardCharsets.UTF_8)) {
+      for (SortKey key : keys) {
+        writer.write(key.line());
+        writer.write('\n');
+      }
+    }
+    return runFile;
+  }
+
+  private List<Path> mergePass(List<Path> runs) throws IOException {
+    List<Path> merged = new ArrayList<>();
+    for (int start = 0; start < runs.size(); start += MAX_MERGE_FAN_IN) {
+      List<Path> group = runs.subList(start, Math.min(start + MAX_MERGE_FAN_IN, runs.size()));
+      Path runFile = createRunFile();
+      try (BufferedWriter writer = Files.newBufferedWriter(runFile, StandardCharsets.UTF_8)) {
+        Iterator<SortKey> keys = merge(group);
+        while (keys.hasNext()) {
+          writer.write(keys.next().line());
+          writer.write('\n');
+        }
+      }
+      close(group);
+      merged.add(runFile);
+    }
+    return merged;
+  }
+
+  private Iterator<SortKey> merge(List<Path> runs) throws IOException {
+    PriorityQueue<RunCursor> heap = new PriorityQueue<>(
+        Comparator.<RunCursor, SortKey>comparing(cursor -> cursor.current, comparator)
+            .thenComparingInt(cursor -> cursor.runIndex));
+    for (int i = 0; i < runs.size(); i++) {
+      BufferedReader reader = Files.newBufferedReader(runs.get(i), StandardCharsets.UTF_8);
+      openReaders.add(reader);
+      RunCursor cursor = new RunCursor(reader, keyExtractor, i);
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return !heap.isEmpty();
+      }
+
+      @Override
+      public SortKey next() {
+        RunCursor cursor = heap.poll();
+        if (cursor == null) {
+          throw new NoSuchElementException();
+        }
+        SortKey key = cursor.current;
+        try {
+          if (cursor.advance()) {
+            heap.add(cursor);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return key;
+      }
+    };
+  }
+
+  private void close(List<Path> runs) throws IOException {
+    for (BufferedReader reader : openReaders) {
+      reader.close();
+    }
+    openReaders.clear();
+    for (Path run : runs) {
+      if (runFiles.remove(run)) {
+        Files.deleteIfExists(run);
+      }
+    }
+  }
+
+  private Path createRunFile() throws IOException {
+    Path runFile = tempDirectory == null
+        ? Files.createTempFile("sort", ".run")
+        : Files.createTempFile(tempDirectory, "sort", ".run");
+    runFiles.add(runFile);
+    return runFile;
+  }
+
+  private static class RunCursor {
+    final BufferedReader reader;
+    final Function<String, SortKey> keyExtractor;
+    final int runIndex;
+    SortKey current;
+
+    RunCursor(BufferedReader reader, Function<String, SortKey> keyExtractor, int runIndex) {
+      this.reader = reader;
+      this.keyExtractor = keyExtractor;
+      this.runIndex = runIndex;
+    }
+
+    boolean advance() throws IOException {
+      String line = reader.readLine();
+      current = line == null ? null : keyExtractor.apply(line);
+      return current != null;
+    }
+  }
+}
@@ -3,26 +3,41 @@ package com.unixtools.command.filecontent;
 import com.unixtools.core.Command;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.regex.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BiPredicate;
 
 public class GrepCommand implements Command {
   private static final long LARGE_FILE_THRESHOLD = 10 * 1024 * 1024;
-  private static final int LARGE_DIR_THRESHOLD = 100;
-  private static final String VALID_FLAGS = "cinfvwr";
+  private static final long STREAM_SEGMENT_SIZE = 8 * 1024 * 1024;
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+  private static final int REORDER_WINDOW = PARALLELISM * 2;
+  private static final int MAX_OPEN_FILES = 128;
+  private static final String VALID_FLAGS = "cinfvwrF";
   private boolean countLines = false;
   private boolean ignoreCase = false;
   private boolean lineNumber = false;
   private boolean invertMatch = false;
   private boolean matchWholeWord = false;
   private boolean recursive = false;
+  private boolean fixedStrings = false;
   private boolean ordered = false;
   private boolean unordered = false;
   private String patternFile = null;
+  private String indexDirectory = null;
+  private boolean buildIndex = false;
+
+  private record Match(long lineIndex, String line) {
+  }
+
+  private record SegmentResult(List<Match> matches, long lineCount, long matchCount) {
+  }
 
   @Override
   public void execute(String[] args) {
@@ -35,19 +50,24 @@ public class GrepCommand implements Command {
       return;
     }
 
+    if (indexDirectory != null) {
+      processIndex(filePaths);
+      return;
+    }
+
     if (filePaths.isEmpty() || (patternFile == null && filePaths.size() == 1)) {
       System.out.println("grep: No pattern or file specified.");
       return;
     }
 
-    String pattern = patternFile == null ? filePaths.remove(0) : getPatternFromFile(patternFile);
-    Pattern compiledPattern = Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+    List<String> patterns = patternFile == null ? List.of(filePaths.remove(0)) : getPatternsFromFile(patternFile);
+    LineMatcher matcher = buildMatcher(patterns);
 
     ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     List<Future<?>> futures = new ArrayList<>();
 
     for (String path : filePaths) {
-      futures.add(executor.submit(() -> processFileOrDirectory(path, compiledPattern)));
+      futures.add(executor.submit(() -> processFileOrDirectory(path, matcher)));
     }
 
     futures.forEach(f -> {
@@ -63,7 +83,15 @@ public class GrepCommand implements Command {
 
   private void parseArguments(String[] args, List<String> flags, List<String> paths) {
     for (int i = 0; i < args.length; i++) {
-      if (args[i].startsWith("-")) {
+      if (args[i].equals("--index")) {
+        if (i + 2 < args.length && args[i + 1].equals("build")) {
+          buildIndex = true;
+          i++;
+        }
+        if (i + 1 < args.length) {
+          indexDirectory = args[++i];
+        }
+      } else if (args[i].startsWith("-")) {
         for (char flag : args[i].substring(1).toCharArray()) {
           switch (flag) {
             case 'c':
@@ -87,6 +115,9 @@ public class GrepCommand implements Command {
             case 'r':
               recursive = true;
               break;
+            case 'F':
+              fixedStrings = true;
+              break;
             case 'o':
               ordered = true;
               break;
@@ -114,34 +145,97 @@ public class GrepCommand implements Command {
     return pathObj.toString();
   }
 
-  private String getPatternFromFile(String fileName) {
-    StringBuilder patternBuilder = new StringBuilder();
+  private List<String> getPatternsFromFile(String fileName) {
+    List<String> patterns = new ArrayList<>();
     try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
       String line;
       while ((line = br.readLine()) != null) {
-        patternBuilder.append(line).append("|");
+        patterns.add(line);
       }
     } catch (IOException e) {
       System.out.println("Error reading pattern file: " + e.getMessage());
-      return "";
+      return List.of("");
+    }
+    return patterns;
+  }
+
+  private LineMatcher buildMatcher(List<String> patterns) {
+    boolean literal = !patterns.isEmpty()
+        && (fixedStrings || patterns.stream().allMatch(AhoCorasickMatcher::isLiteral));
+    if (!literal) {
+      return new RegexLineMatcher(String.join("|", patterns), ignoreCase);
+    }
+    if (patterns.size() == 1 && BoyerMooreHorspoolMatcher.isSearchable(patterns.get(0))) {
+      return new BoyerMooreHorspoolMatcher(patterns.get(0), ignoreCase);
     }
-    return patternBuilder.toString().replaceAll("\\|$", "");
+    return new AhoCorasickMatcher(patterns, ignoreCase);
   }
 
-  private void processFileOrDirectory(String path, Pattern pattern) {
+  private void processIndex(List<String> filePaths) {
+    Path directory = Paths.get(normalizePath(indexDirectory));
+    if (!Files.isDirectory(directory)) {
+      System.out.println("grep: Not a directory: " + indexDirectory);
+      return;
+    }
+    try {
+      if (buildIndex) {
+        int fileCount = TrigramIndex.build(directory);
+        System.out.println("Indexed " + fileCount + " files into " + directory.resolve(TrigramIndex.INDEX_FILE_NAME));
+        return;
+      }
+      if (patternFile == null && filePaths.isEmpty()) {
+        System.out.println("grep: No pattern specified.");
+        return;
+      }
+      if (!Files.exists(directory.resolve(TrigramIndex.INDEX_FILE_NAME))) {
+        System.out.println("grep: No index found. Run grep --index build " + indexDirectory + " first.");
+        return;
+      }
+      List<String> patterns = patternFile == null ? List.of(filePaths.get(0)) : getPatternsFromFile(patternFile);
+      LineMatcher matcher = buildMatcher(patterns);
+      TrigramIndex index = TrigramIndex.load(directory);
+      BitSet candidates = index.candidates(indexQuery(patterns, matcher));
+      processDirectory(directory, matcher, (file, attrs) -> {
+        int fileId = index.fileId(directory, file, attrs);
+        if (candidates == null || fileId < 0 || candidates.get(fileId)) {
+          return true;
+        }
+        if (countLines) {
+          System.out.println(file + ":0");
+        }
+        return false;
+      });
+    } catch (IOException e) {
+      System.err.println("Error using index: " + e.getMessage());
+    }
+  }
+
+  private List<List<String>> indexQuery(List<String> patterns, LineMatcher matcher) {
+    if (invertMatch) {
+      return null;
+    }
+    if (matcher instanceof RegexLineMatcher) {
+      return TrigramIndex.requiredLiterals(String.join("|", patterns));
+    }
+    List<List<String>> alternatives = new ArrayList<>();
+    patterns.forEach(pattern -> alternatives.add(List.of(pattern)));
+    return alternatives;
+  }
+
+  private void processFileOrDirectory(String path, LineMatcher matcher) {
     Path filePath = Paths.get(normalizePath(path));
     try {
       if (Files.isDirectory(filePath) && recursive) {
-        processDirectory(filePath, pattern);
+        processDirectory(filePath, matcher, (file, attrs) -> true);
       } else if (Files.isRegularFile(filePath)) {
-        processFile(filePath.toString(), pattern);
+        processFile(filePath.toString(), matcher);
       }
     } catch (IOException e) {
       System.err.println("Error processing file/directory: " + e.getMessage());
     }
   }
 
-  private void processFile(String filePath, Pattern pattern) throws IOException {
+  private void processFile(String filePath, LineMatcher matcher) throws IOException {
     if (Files.size(Paths.get(filePath)) > LARGE_FILE_THRESHOLD) {
       if (!ordered && !unordered) {
         throw new IllegalArgumentException(
@@ -150,122 +244,307 @@ public class GrepCommand implements Command {
       if (ordered && unordered) {
         System.out
             .println("Both ordered and unordered flags are set. Preferring unordered processing for performance.");
-        unorderedProcessing(filePath, pattern);
+        unorderedProcessing(filePath, matcher);
       } else if (ordered) {
-        orderedProcessing(filePath, pattern);
+        orderedProcessing(filePath, matcher);
       } else {
-        unorderedProcessing(filePath, pattern);
+        unorderedProcessing(filePath, matcher);
       }
     } else {
-      grepFile(filePath, pattern);
+      grepFile(filePath, matcher);
     }
   }
 
-  private void orderedProcessing(String filePath, Pattern pattern) throws IOException {
-    processFileConcurrently(filePath, pattern, true);
+  private void orderedProcessing(String filePath, LineMatcher matcher) throws IOException {
+    processFileConcurrently(filePath, matcher, true);
+  }
+
+  private void unorderedProcessing(String filePath, LineMatcher matcher) throws IOException {
+    processFileConcurrently(filePath, matcher, false);
   }
 
-  private void unorderedProcessing(String filePath, Pattern pattern) throws IOException {
-    processFileConcurrently(filePath, pattern, false);
+  private void grepFile(String filePath, LineMatcher matcher) {
+    System.out.print(grepFile(filePath, matcher, ""));
   }
 
-  private void grepFile(String filePath, Pattern pattern) {
+  private String grepFile(String filePath, LineMatcher matcher, String prefix) {
+    StringBuilder output = new StringBuilder();
+    if (isByteSearchable(matcher)) {
+      grepFileBytes(filePath, matcher, prefix, output);
+      return output.toString();
+    }
     int matchingLineCount = 0;
-    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+    long currentLine = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
       String line;
       while ((line = reader.readLine()) != null) {
-        if (matchesPattern(line, pattern)) {
+        currentLine++;
+        if (matchesPattern(line, matcher)) {
           if (countLines) {
             matchingLineCount++;
             continue;
           }
-          System.out.println((lineNumber ? matchingLineCount + ": " : "") + line);
+          output.append(prefix).append(lineNumber ? currentLine + ": " : "").append(line)
+              .append(System.lineSeparator());
         }
       }
       if (countLines) {
-        System.out.println(matchingLineCount);
+        output.append(prefix).append(matchingLineCount).append(System.lineSeparator());
       }
     } catch (IOException e) {
       System.err.println("Error reading file: " + e.getMessage());
     }
+    return output.toString();
   }
 
-  private boolean matchesPattern(String line, Pattern pattern) {
-    Matcher matcher = pattern.matcher(line);
-    return matchWholeWord ? matcher.matches() : (invertMatch != matcher.find());
+  private void grepFileBytes(String filePath, LineMatcher matcher, String prefix, StringBuilder output) {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      long startOffset = 0;
+      long linesBefore = 0;
+      long matchingLineCount = 0;
+      while (startOffset < fileSize) {
+        long endOffset = LineSegments.segmentEnd(channel, startOffset, STREAM_SEGMENT_SIZE, fileSize);
+        SegmentResult result = processFileSegment(channel, matcher, startOffset, endOffset);
+        for (Match match : result.matches()) {
+          output.append(prefix).append(formatMatch(match, linesBefore)).append(System.lineSeparator());
+        }
+        linesBefore += result.lineCount();
+        matchingLineCount += result.matchCount();
+        startOffset = endOffset;
+      }
+      if (countLines) {
+        output.append(prefix).append(matchingLineCount).append(System.lineSeparator());
+      }
+    } catch (IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+    }
   }
 
-  private void processFileConcurrently(String filePath, Pattern pattern, boolean ordered) throws IOException {
-    RandomAccessFile file = new RandomAccessFile(filePath, "r");
-    long fileSize = file.length();
-    file.close();
+  private String formatMatch(Match match, long linesBefore) {
+    return (lineNumber ? (linesBefore + match.lineIndex()) + ": " : "") + match.line();
+  }
 
-    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-    long segmentSize = fileSize / LARGE_DIR_THRESHOLD;
-    List<Future<List<String>>> futures = new ArrayList<>();
+  private boolean isByteSearchable(LineMatcher matcher) {
+    return matcher instanceof BoyerMooreHorspoolMatcher && !matchWholeWord;
+  }
 
-    for (long offset = 0; offset < fileSize; offset += segmentSize) {
-      final long offsetFinal = offset;
-      long endOffset = Math.min(offset + segmentSize, fileSize);
-      futures.add(executor.submit(() -> processFileSegment(filePath, pattern, offsetFinal, endOffset)));
-    }
+  private boolean matchesPattern(String line, LineMatcher matcher) {
+    return matchWholeWord ? matcher.matchesWholeLine(line) : (invertMatch != matcher.find(line));
+  }
 
-    List<String> results = ordered ? combineAndOrderResults(futures) : combineResults(futures);
-    results.forEach(System.out::println);
+  private void processFileConcurrently(String filePath, LineMatcher matcher, boolean ordered) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      long segmentSize = Math.min(STREAM_SEGMENT_SIZE, Math.max(1, (fileSize + PARALLELISM - 1) / PARALLELISM));
+      ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+      try {
+        if (ordered || lineNumber || countLines) {
+          streamOrderedResults(channel, fileSize, segmentSize, matcher, executor);
+        } else {
+          streamUnorderedResults(channel, fileSize, segmentSize, matcher, executor);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
 
-    executor.shutdown();
+  private void streamOrderedResults(FileChannel channel, long fileSize, long segmentSize, LineMatcher matcher,
+      ExecutorService executor) throws IOException {
+    Deque<Future<SegmentResult>> reorderBuffer = new ArrayDeque<>();
+    long nextOffset = 0;
+    long linesBefore = 0;
+    long matchingLineCount = 0;
+    while (nextOffset < fileSize || !reorderBuffer.isEmpty()) {
+      while (nextOffset < fileSize && reorderBuffer.size() < REORDER_WINDOW) {
+        long startOffset = nextOffset;
+        long endOffset = LineSegments.segmentEnd(channel, startOffset, segmentSize, fileSize);
+        reorderBuffer.add(executor.submit(() -> processFileSegment(channel, matcher, startOffset, endOffset)));
+        nextOffset = endOffset;
+      }
+      try {
+        SegmentResult result = reorderBuffer.poll().get();
+        for (Match match : result.matches()) {
+          System.out.println(formatMatch(match, linesBefore));
+        }
+        linesBefore += result.lineCount();
+        matchingLineCount += result.matchCount();
+      } catch (InterruptedException | ExecutionException e) {
+        System.err.println("Error combining results: " + e.getMessage());
+      }
+    }
+    if (countLines) {
+      System.out.println(matchingLineCount);
+    }
   }
 
-  private List<String> combineResults(List<Future<List<String>>> futures) {
-    List<String> combinedResults = new ArrayList<>();
-    for (Future<List<String>> future : futures) {
+  private void streamUnorderedResults(FileChannel channel, long fileSize, long segmentSize, LineMatcher matcher,
+      ExecutorService executor) throws IOException {
+    CompletionService<SegmentResult> completionService = new ExecutorCompletionService<>(executor);
+    long nextOffset = 0;
+    int inFlight = 0;
+    while (nextOffset < fileSize || inFlight > 0) {
+      while (nextOffset < fileSize && inFlight < REORDER_WINDOW) {
+        long startOffset = nextOffset;
+        long endOffset = LineSegments.segmentEnd(channel, startOffset, segmentSize, fileSize);
+        completionService.submit(() -> processFileSegment(channel, matcher, startOffset, endOffset));
+        nextOffset = endOffset;
+        inFlight++;
+      }
       try {
-        combinedResults.addAll(future.get());
+        completionService.take().get().matches().forEach(match -> System.out.println(match.line()));
       } catch (InterruptedException | ExecutionException e) {
         System.err.println("Error combining results: " + e.getMessage());
       }
+      inFlight--;
     }
-    return combinedResults;
   }
 
-  private List<String> combineAndOrderResults(List<Future<List<String>>> futures) {
-    List<String> combinedResults = combineResults(futures);
-    combinedResults.sort(Comparator.naturalOrder());
-    return combinedResults;
+  private SegmentResult processFileSegment(FileChannel channel, LineMatcher matcher, long startOffset, long endOffset)
+      throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, startOffset, endOffset - startOffset);
+    if (isByteSearchable(matcher)) {
+      return scanLiteralSegment(buffer, (BoyerMooreHorspoolMatcher) matcher);
+    }
+    List<Match> matches = new ArrayList<>();
+    byte[] lineBytes = new byte[256];
+    long lineIndex = 0;
+    long matchCount = 0;
+    int limit = buffer.limit();
+    int lineStart = 0;
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && !isLineTerminator(buffer.get(lineEnd))) {
+        lineEnd++;
+      }
+      int length = lineEnd - lineStart;
+      if (length > lineBytes.length) {
+        lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+      }
+      buffer.get(lineStart, lineBytes, 0, length);
+      String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+      lineIndex++;
+      if (matchesPattern(line, matcher)) {
+        matchCount++;
+        if (!countLines) {
+          matches.add(new Match(lineIndex, line));
+        }
+      }
+      lineStart = nextLineStart(buffer, lineEnd, limit);
+    }
+    return new SegmentResult(matches, lineIndex, matchCount);
   }
 
-  private List<String> processFileSegment(String filePath, Pattern pattern, long startOffset, long endOffset) {
-    List<String> results = new ArrayList<>();
-    try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
-      file.seek(startOffset);
-      String line;
-      while (file.getFilePointer() < endOffset && (line = file.readLine()) != null) {
-        if (matchesPattern(line, pattern)) {
-          results.add(startOffset + ": " + line);
+  private SegmentResult scanLiteralSegment(ByteBuffer buffer, BoyerMooreHorspoolMatcher matcher) {
+    List<Match> matches = new ArrayList<>();
+    long lineIndex = 0;
+    long matchCount = 0;
+    int limit = buffer.limit();
+    int cursor = 0;
+    while (cursor < limit) {
+      int hit = matcher.indexOf(buffer, cursor, limit);
+      int lineStart = hit < 0 ? limit : lineStartBefore(buffer, hit, cursor);
+      if (invertMatch) {
+        while (cursor < lineStart) {
+          int lineEnd = lineEndAfter(buffer, cursor, limit);
+          lineIndex++;
+          matchCount++;
+          if (!countLines) {
+            matches.add(new Match(lineIndex, decodeLine(buffer, cursor, lineEnd)));
+          }
+          cursor = nextLineStart(buffer, lineEnd, limit);
         }
+      } else if (lineNumber) {
+        lineIndex += countLineBreaks(buffer, cursor, lineStart);
       }
-    } catch (IOException e) {
-      System.err.println("Error processing file segment: " + e.getMessage());
+      if (hit < 0) {
+        break;
+      }
+      int lineEnd = lineEndAfter(buffer, hit, limit);
+      lineIndex++;
+      if (!invertMatch) {
+        matchCount++;
+        if (!countLines) {
+          matches.add(new Match(lineIndex, decodeLine(buffer, lineStart, lineEnd)));
+        }
+      }
+      cursor = nextLineStart(buffer, lineEnd, limit);
+    }
+    return new SegmentResult(matches, lineIndex, matchCount);
+  }
+
+  private int lineStartBefore(ByteBuffer buffer, int position, int floor) {
+    while (position > floor && !isLineTerminator(buffer.get(position - 1))) {
+      position--;
     }
-    return results;
+    return position;
   }
 
-  private void processDirectory(Path directory, Pattern pattern) throws IOException {
-    try (Stream<Path> paths = Files.walk(directory)) {
-      ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-      List<Future<?>> futures = paths.filter(Files::isRegularFile)
-          .map(p -> executor.submit(() -> grepFile(p.toString(), pattern)))
-          .collect(Collectors.toList());
+  private int lineEndAfter(ByteBuffer buffer, int position, int limit) {
+    while (position < limit && !isLineTerminator(buffer.get(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private long countLineBreaks(ByteBuffer buffer, int from, int to) {
+    long count = 0;
+    for (int i = from; i < to; i++) {
+      byte b = buffer.get(i);
+      if (b == '\n' || (b == '\r' && (i + 1 >= to || buffer.get(i + 1) != '\n'))) {
+        count++;
+      }
+    }
+    return count;
+  }
 
-      futures.forEach(f -> {
-        try {
-          f.get();
-        } catch (InterruptedException | ExecutionException e) {
+  private String decodeLine(ByteBuffer buffer, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    buffer.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private boolean isLineTerminator(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  private int nextLineStart(ByteBuffer buffer, int lineEnd, int limit) {
+    if (lineEnd + 1 < limit && buffer.get(lineEnd) == '\r' && buffer.get(lineEnd + 1) == '\n') {
+      return lineEnd + 2;
+    }
+    return lineEnd + 1;
+  }
+
+  private void processDirectory(Path directory, LineMatcher matcher,
+      BiPredicate<Path, BasicFileAttributes> filter) throws IOException {
+    Semaphore openFiles = new Semaphore(MAX_OPEN_FILES);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          if (attrs.isRegularFile() && !file.getFileName().toString().equals(TrigramIndex.INDEX_FILE_NAME)
+              && filter.test(file, attrs)) {
+            openFiles.acquireUninterruptibly();
+            executor.execute(() -> {
+              try {
+                System.out.print(grepFile(file.toString(), matcher, file + ":"));
+              } catch (RuntimeException e) {
+                System.err.println("Error processing directory file: " + file + ": " + e.getMessage());
+              } finally {
+                openFiles.release();
+              }
+            });
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
           System.err.println("Error processing directory file: " + e.getMessage());
+          return FileVisitResult.CONTINUE;
         }
       });
-
-      executor.shutdown();
     }
   }
 }
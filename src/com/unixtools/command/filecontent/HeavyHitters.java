@@ -0,0 +1,76 @@
+package com.unixtools.command.filecontent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+class HeavyHitters {
+  record Candidate(String line, long hash, long count) {
+  }
+
+  private final int capacity;
+  private final CountMinSketch sketch;
+  private final Map<Long, Candidate> candidates = new HashMap<>();
+  private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(Candidate::count));
+
+  HeavyHitters(int capacity, CountMinSketch sketch) {
+    this.capacity = capacity;
+    this.sketch = sketch;
+  }
+
+  HeavyHitters emptyCopy() {
+    return new HeavyHitters(capacity, sketch.emptyCopy());
+  }
+
+  void add(long hash, byte[] bytes, int offset, int length) {
+    long estimate = sketch.add(hash);
+    Candidate existing = candidates.get(hash);
+    if (existing != null) {
+      candidates.put(hash, new Candidate(existing.line(), hash, estimate));
+    } else if (candidates.size() < capacity) {
+      offer(new Candidate(new String(bytes, offset, length, StandardCharsets.UTF_8), hash, estimate));
+    } else if (capacity > 0 && estimate > smallest().count()) {
+      candidates.remove(heap.poll().hash());
+      offer(new Candidate(new String(bytes, offset, length, StandardCharsets.UTF_8), hash, estimate));
+    }
+  }
+
+  void merge(HeavyHitters other) {
+    sketch.merge(other.sketch);
+    Map<Long, String> lines = new HashMap<>();
+    for (Candidate candidate : candidates.values()) {
+      lines.put(candidate.hash(), candidate.line());
+    }
+    for (Candidate candidate : other.candidates.values()) {
+      lines.put(candidate.hash(), candidate.line());
+    }
+    candidates.clear();
+    heap.clear();
+    for (Map.Entry<Long, String> entry : lines.entrySet()) {
+      Candidate candidate = new Candidate(entry.getValue(), entry.getKey(), sketch.estimate(entry.getKey()));
+      if (candidates.size() < capacity) {
+        offer(candidate);
+      } else if (candidate.count() > smallest().count()) {
+        candidates.remove(heap.poll().hash());
+        offer(candidate);
+      }
+    }
+  }
+
+  List<Candidate> top() {
+    List<Candidate> top = new ArrayList<>(candidates.values());
+    top.sort(Comparator.comparingLong(Candidate::count).reversed().thenComparing(Candidate::line));
+    return top;
+  }
+
+  private Candidate smallest() {
+    while (heap.peek() != candidates.get(heap.peek().hash())) {
+      heap.add(candidates.get(heap.poll().hash()));
+    }
+    return heap.peek();
+  }
+
+  private void offer(Candidate candidate) {
+    candidates.put(candidate.hash(), candidate);
+    heap.add(candidate);
+  }
+}
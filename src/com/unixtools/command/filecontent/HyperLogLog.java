@@ -0,0 +1,63 @@
+package com.unixtools.command.filecontent;
+
+class HyperLogLog {
+  private static final int MIN_PRECISION = 4;
+  private static final int MAX_PRECISION = 18;
+
+  private final int precision;
+  private final byte[] registers;
+
+  HyperLogLog(int precision) {
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  static HyperLogLog withRelativeError(double error) {
+    int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / error, 2)) / Math.log(2));
+    return new HyperLogLog(Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision)));
+  }
+
+  HyperLogLog emptyCopy() {
+    return new HyperLogLog(precision);
+  }
+
+  void add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - precision));
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Cannot merge sketches of different precision");
+    }
+    for (int i = 0; i < registers.length; i++) {
+      registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+    }
+  }
+
+  long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double alpha = switch (m) {
+      case 16 -> 0.673;
+      case 32 -> 0.697;
+      case 64 -> 0.709;
+      default -> 0.7213 / (1 + 1.079 / m);
+    };
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+}
@@ -0,0 +1,108 @@
+package com.unixtools.command.filecontent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+class LineCountTable {
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  private int[] slots = new int[INITIAL_CAPACITY];
+  private long[] hashes = new long[INITIAL_CAPACITY / 2];
+  private long[] offsets = new long[INITIAL_CAPACITY / 2];
+  private int[] lengths = new int[INITIAL_CAPACITY / 2];
+  private long[] counts = new long[INITIAL_CAPACITY / 2];
+  private byte[] chunk = new byte[INITIAL_CAPACITY * 16];
+  private final List<byte[]> chunks = new ArrayList<>(List.of(chunk));
+  private int chunkUsed = 0;
+  private int size = 0;
+
+  void add(byte[] key, int offset, int length, long hash, long count) {
+    int mask = slots.length - 1;
+    int slot = (int) hash & mask;
+    while (slots[slot] != 0) {
+      int entry = slots[slot] - 1;
+      int position = position(entry);
+      if (hashes[entry] == hash && lengths[entry] == length
+          && Arrays.equals(chunk(entry), position, position + length, key, offset, offset + length)) {
+        counts[entry] += count;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size == hashes.length) {
+      grow();
+      add(key, offset, length, hash, count);
+      return;
+    }
+    if (chunkUsed + length > chunk.length) {
+      chunk = new byte[Math.max(CHUNK_SIZE, length)];
+      chunks.add(chunk);
+      chunkUsed = 0;
+    }
+    System.arraycopy(key, offset, chunk, chunkUsed, length);
+    hashes[size] = hash;
+    offsets[size] = ((long) (chunks.size() - 1) << 32) | chunkUsed;
+    lengths[size] = length;
+    counts[size] = count;
+    chunkUsed += length;
+    slots[slot] = ++size;
+  }
+
+  void addAll(LineCountTable other) {
+    for (int entry = 0; entry < other.size; entry++) {
+      add(other.chunk(entry), other.position(entry), other.lengths[entry], other.hashes[entry], other.counts[entry]);
+    }
+  }
+
+  Iterator<SpillingLineCounter.LineCount> entries() {
+    return new Iterator<>() {
+      private int entry = 0;
+
+      @Override
+      public boolean hasNext() {
+        return entry < size;
+      }
+
+      @Override
+      public SpillingLineCounter.LineCount next() {
+        if (entry >= size) {
+          throw new NoSuchElementException();
+        }
+        String line = new String(chunk(entry), position(entry), lengths[entry], StandardCharsets.UTF_8);
+        SpillingLineCounter.LineCount count = new SpillingLineCounter.LineCount(line, entry, counts[entry]);
+        entry++;
+        return count;
+      }
+    };
+  }
+
+  private byte[] chunk(int entry) {
+    return chunks.get((int) (offsets[entry] >>> 32));
+  }
+
+  private int position(int entry) {
+    return (int) offsets[entry];
+  }
+
+  private void grow() {
+    int capacity = hashes.length * 2;
+    hashes = Arrays.copyOf(hashes, capacity);
+    offsets = Arrays.copyOf(offsets, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    counts = Arrays.copyOf(counts, capacity);
+    slots = new int[capacity * 2];
+    int mask = slots.length - 1;
+    for (int entry = 0; entry < size; entry++) {
+      int slot = (int) hashes[entry] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = entry + 1;
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package com.unixtools.command.filecontent;
+
+interface LineMatcher {
+  boolean find(String line);
+
+  boolean matchesWholeLine(String line);
+}
@@ -0,0 +1,51 @@
+package com.unixtools.command.filecontent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+class LineSegments {
+  private static final int BOUNDARY_SCAN_SIZE = 64 * 1024;
+
+  private LineSegments() {
+  }
+
+  static List<long[]> split(FileChannel channel, long segmentSize) throws IOException {
+    long fileSize = channel.size();
+    List<long[]> segments = new ArrayList<>();
+    long start = 0;
+    while (start < fileSize) {
+      long end = segmentEnd(channel, start, segmentSize, fileSize);
+      segments.add(new long[] { start, end });
+      start = end;
+    }
+    return segments;
+  }
+
+  static long segmentEnd(FileChannel channel, long start, long segmentSize, long fileSize) throws IOException {
+    if (start + segmentSize >= fileSize) {
+      return fileSize;
+    }
+    return nextLineBoundary(channel, start + segmentSize, fileSize);
+  }
+
+  private static long nextLineBoundary(FileChannel channel, long position, long fileSize) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+    while (position < fileSize) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return fileSize;
+  }
+}
@@ -0,0 +1,186 @@
+package com.unixtools.command.filecontent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class NumericRadixSorter {
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+  private static final int RADIX_BITS = 16;
+  private static final int RADIX = 1 << RADIX_BITS;
+  private static final int MAX_FAST_DIGITS = 18;
+
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private long[] segmentStarts = new long[0];
+  private long[] keys = new long[1024];
+  private long[] offsets = new long[1024];
+  private int count = 0;
+
+  private NumericRadixSorter() {
+  }
+
+  static NumericRadixSorter load(List<FileChannel> channels) throws IOException {
+    NumericRadixSorter sorter = new NumericRadixSorter();
+    List<Long> starts = new ArrayList<>();
+    long base = 0;
+    for (FileChannel channel : channels) {
+      for (long[] bounds : LineSegments.split(channel, MAX_SEGMENT_SIZE)) {
+        long start = bounds[0];
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, bounds[1] - start);
+        if (!sorter.parseSegment(segment, base + start)) {
+          return null;
+        }
+        sorter.segments.add(segment);
+        starts.add(base + start);
+      }
+      base += channel.size();
+    }
+    sorter.segmentStarts = starts.stream().mapToLong(Long::longValue).toArray();
+    return sorter;
+  }
+
+  void sort(boolean reverse) {
+    if (reverse) {
+      for (int i = 0; i < count; i++) {
+        keys[i] = ~keys[i];
+      }
+    }
+    long[] keyBuffer = new long[count];
+    long[] offsetBuffer = new long[count];
+    int[] counts = new int[RADIX];
+    for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < count; i++) {
+        counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+      }
+      if (counts[(int) (keys[0] >>> shift) & (RADIX - 1)] == count) {
+        continue;
+      }
+      int position = 0;
+      for (int digit = 0; digit < RADIX; digit++) {
+        int digitCount = counts[digit];
+        counts[digit] = position;
+        position += digitCount;
+      }
+      for (int i = 0; i < count; i++) {
+        int target = counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+        keyBuffer[target] = keys[i];
+        offsetBuffer[target] = offsets[i];
+      }
+      long[] swapKeys = keys;
+      keys = keyBuffer;
+      keyBuffer = swapKeys;
+      long[] swapOffsets = offsets;
+      offsets = offsetBuffer;
+      offsetBuffer = swapOffsets;
+    }
+  }
+
+  void write(OutputStream out, boolean unique) throws IOException {
+    byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    byte[] line = new byte[256];
+    Set<String> equalGroup = new HashSet<>();
+    for (int i = 0; i < count; i++) {
+      int segmentIndex = segmentIndex(offsets[i]);
+      ByteBuffer segment = segments.get(segmentIndex);
+      int start = (int) (offsets[i] - segmentStarts[segmentIndex]);
+      int end = start;
+      while (end < segment.limit() && segment.get(end) != '\n' && segment.get(end) != '\r') {
+        end++;
+      }
+      int length = end - start;
+      if (length > line.length) {
+        line = new byte[Math.max(length, line.length * 2)];
+      }
+      segment.get(start, line, 0, length);
+      if (unique) {
+        if (i == 0 || keys[i] != keys[i - 1]) {
+          equalGroup.clear();
+        }
+        if (!equalGroup.add(new String(line, 0, length, StandardCharsets.UTF_8))) {
+          continue;
+        }
+      }
+      out.write(line, 0, length);
+      out.write(lineSeparator);
+    }
+  }
+
+  private boolean parseSegment(ByteBuffer segment, long segmentStart) {
+    int limit = segment.limit();
+    int lineStart = 0;
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && segment.get(lineEnd) != '\n' && segment.get(lineEnd) != '\r') {
+        lineEnd++;
+      }
+      double value;
+      try {
+        value = parseNumber(segment, lineStart, lineEnd);
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      add(sortableBits(value), segmentStart + lineStart);
+      if (lineEnd + 1 < limit && segment.get(lineEnd) == '\r' && segment.get(lineEnd + 1) == '\n') {
+        lineEnd++;
+      }
+      lineStart = lineEnd + 1;
+    }
+    return true;
+  }
+
+  private double parseNumber(ByteBuffer segment, int start, int end) {
+    int position = start;
+    boolean negative = false;
+    if (position < end && (segment.get(position) == '-' || segment.get(position) == '+')) {
+      negative = segment.get(position) == '-';
+      position++;
+    }
+    int digits = end - position;
+    if (digits > 0 && digits <= MAX_FAST_DIGITS) {
+      long value = 0;
+      while (position < end) {
+        byte b = segment.get(position);
+        if (b < '0' || b > '9') {
+          break;
+        }
+        value = value * 10 + (b - '0');
+        position++;
+      }
+      if (position == end) {
+        return negative ? -(double) value : value;
+      }
+    }
+    byte[] bytes = new byte[end - start];
+    segment.get(start, bytes);
+    return Double.parseDouble(new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  private long sortableBits(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+  }
+
+  private void add(long key, long offset) {
+    if (count == keys.length) {
+      keys = Arrays.copyOf(keys, count * 2);
+      offsets = Arrays.copyOf(offsets, count * 2);
+    }
+    keys[count] = key;
+    offsets[count] = offset;
+    count++;
+  }
+
+  private int segmentIndex(long offset) {
+    int index = Arrays.binarySearch(segmentStarts, offset);
+    return index >= 0 ? index : -index - 2;
+  }
+}
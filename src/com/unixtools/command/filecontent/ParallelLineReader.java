@@ -0,0 +1,90 @@
+package com.unixtools.command.filecontent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+class ParallelLineReader {
+  private static final long MAX_SEGMENT_SIZE = 512L * 1024 * 1024;
+
+  private ParallelLineReader() {
+  }
+
+  static String[] readAllLines(Path path, ForkJoinPool pool) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      int parallelism = pool.getParallelism();
+      long segmentSize = Math.min(MAX_SEGMENT_SIZE, Math.max(1, (fileSize + parallelism - 1) / parallelism));
+      List<Future<List<String>>> futures = new ArrayList<>();
+      for (long[] segment : LineSegments.split(channel, segmentSize)) {
+        futures.add(pool.submit(() -> decodeSegment(channel, segment[0], segment[1])));
+      }
+
+      List<List<String>> segments = new ArrayList<>();
+      int lineCount = 0;
+      for (Future<List<String>> future : futures) {
+        List<String> lines = awaitSegment(future);
+        segments.add(lines);
+        lineCount += lines.size();
+      }
+      String[] lines = new String[lineCount];
+      int position = 0;
+      for (List<String> segment : segments) {
+        for (String line : segment) {
+          lines[position++] = line;
+        }
+      }
+      return lines;
+    }
+  }
+
+  private static List<String> decodeSegment(FileChannel channel, long start, long end) {
+    try {
+      CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+          .decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+      char[] array = chars.array();
+      int limit = chars.arrayOffset() + chars.limit();
+      List<String> lines = new ArrayList<>();
+      int lineStart = chars.arrayOffset();
+      for (int i = lineStart; i < limit; i++) {
+        char ch = array[i];
+        if (ch == '\n' || ch == '\r') {
+          lines.add(new String(array, lineStart, i - lineStart));
+          if (ch == '\r' && i + 1 < limit && array[i + 1] == '\n') {
+            i++;
+          }
+          lineStart = i + 1;
+        }
+      }
+      if (lineStart < limit) {
+        lines.add(new String(array, lineStart, limit - lineStart));
+      }
+      return lines;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static List<String> awaitSegment(Future<List<String>> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading file", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException cause) {
+        throw cause.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.unixtools.command.filecontent;
+
+import java.util.regex.Pattern;
+
+class RegexLineMatcher implements LineMatcher {
+  private final Pattern pattern;
+
+  RegexLineMatcher(String regex, boolean ignoreCase) {
+    this.pattern = Pattern.compile(regex, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+  }
+
+  @Override
+  public boolean find(String line) {
+    return pattern.matcher(line).find();
+  }
+
+  @Override
+  public boolean matchesWholeLine(String line) {
+    return pattern.matcher(line).matches();
+  }
+}
@@ -0,0 +1,17 @@
+package com.unixtools.command.filecontent;
+
+class SizeOption {
+  private SizeOption() {
+  }
+
+  static long parse(String size) {
+    String digits = size.replaceAll("[KkMmGg]$", "");
+    long multiplier = switch (Character.toUpperCase(size.charAt(size.length() - 1))) {
+      case 'K' -> 1024L;
+      case 'M' -> 1024L * 1024;
+      case 'G' -> 1024L * 1024 * 1024;
+      default -> 1L;
+    };
+    return Long.parseLong(digits) * multiplier;
+  }
+}
@@ -3,19 +3,101 @@ package com.unixtools.command.filecontent;
 import com.unixtools.core.Command;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SortCommand implements Command {
-  private static final String VALID_FLAGS = "dufnroc";
+  private static final String VALID_FLAGS = "dufnrocSTktm";
+  private static final int MAX_KEYS = Long.SIZE;
+  private static final int TOP_INITIAL_CAPACITY = 1024;
+  private static final int MIN_SORT_GRANULARITY = 1 << 13;
   private boolean dictionaryOrder = false;
   private boolean unique = false;
   private boolean caseInsensitive = false;
   private boolean numericSort = false;
   private boolean reverse = false;
   private boolean columnSort = false;
+  private boolean mergeOnly = false;
   private int columnIndex = -1;
   private String outputFile = null;
+  private long memoryBudget = -1;
+  private String tempDirectory = null;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private int topCount = -1;
+  private Character separator = null;
+  private List<KeySpec> keySpecs = new ArrayList<>();
+
+  private static class KeySpec {
+    int startField = 1;
+    int startChar = 1;
+    boolean skipStartBlanks = false;
+    int endField = 0;
+    int endChar = 0;
+    boolean skipEndBlanks = false;
+    boolean numeric = false;
+    boolean reverse = false;
+    boolean fold = false;
+    int commaColumn = -1;
+
+    boolean hasOrderingOptions() {
+      return numeric || reverse || fold;
+    }
+
+    boolean coversWholeLine() {
+      return commaColumn < 0 && startField == 1 && startChar == 1 && !skipStartBlanks && endField == 0;
+    }
+  }
+
+  private record RankedKey(SortKey key, long sequence) {
+  }
+
+  private static class MergeSortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient SortKey[] keys;
+    private final transient SortKey[] buffer;
+    private final int from;
+    private final int to;
+    private final int granularity;
+    private final transient Comparator<SortKey> comparator;
+
+    MergeSortTask(SortKey[] keys, SortKey[] buffer, int from, int to, int granularity,
+        Comparator<SortKey> comparator) {
+      this.keys = keys;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.granularity = granularity;
+      this.comparator = comparator;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= granularity) {
+        Arrays.sort(keys, from, to, comparator);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new MergeSortTask(keys, buffer, from, middle, granularity, comparator),
+          new MergeSortTask(keys, buffer, middle, to, granularity, comparator));
+      if (comparator.compare(keys[middle - 1], keys[middle]) <= 0) {
+        return;
+      }
+      System.arraycopy(keys, from, buffer, from, to - from);
+      int left = from;
+      int right = middle;
+      for (int i = from; i < to; i++) {
+        if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+          keys[i] = buffer[left++];
+        } else {
+          keys[i] = buffer[right++];
+        }
+      }
+    }
+  }
 
   @Override
   public void execute(String[] args) {
@@ -33,19 +115,43 @@ public class SortCommand implements Command {
       return;
     }
 
+    if (keySpecs.size() > MAX_KEYS) {
+      System.out.println("sort: At most " + MAX_KEYS + " keys are supported.");
+      return;
+    }
+    resolveKeySpecs();
+
     try {
-      List<String> lines = Files.readAllLines(Paths.get(normalizePath(filePaths.get(0))));
-      sortLines(lines);
-      outputSortedLines(lines, outputFile);
-    } catch (IOException e) {
+      List<Path> inputPaths = new ArrayList<>();
+      for (String filePath : filePaths) {
+        inputPaths.add(Paths.get(normalizePath(filePath)));
+      }
+      if (mergeOnly) {
+        mergeSorted(inputPaths);
+      } else if (topCount >= 0) {
+        topSort(inputPaths);
+      } else if (memoryBudget > 0) {
+        externalSort(inputPaths);
+      } else {
+        parallelSort(inputPaths);
+      }
+    } catch (IOException | UncheckedIOException e) {
       System.err.println("Error processing file: " + e.getMessage());
     }
   }
 
   private void parseArguments(String[] args, List<String> flags, List<String> paths) {
     for (int i = 0; i < args.length; i++) {
-      if (args[i].startsWith("-")) {
-        for (char flag : args[i].substring(1).toCharArray()) {
+      if (args[i].equals("--parallel")) {
+        if (i + 1 < args.length)
+          parallelism = Math.max(1, Integer.parseInt(args[++i]));
+      } else if (args[i].equals("--top")) {
+        if (i + 1 < args.length)
+          topCount = Math.max(0, Integer.parseInt(args[++i]));
+      } else if (args[i].startsWith("-")) {
+        String cluster = args[i];
+        for (int j = 1; j < cluster.length(); j++) {
+          char flag = cluster.charAt(j);
           switch (flag) {
             case 'd':
               dictionaryOrder = true;
@@ -62,6 +168,9 @@ public class SortCommand implements Command {
             case 'r':
               reverse = true;
               break;
+            case 'm':
+              mergeOnly = true;
+              break;
             case 'o':
               if (i + 1 < args.length)
                 outputFile = args[++i];
@@ -71,6 +180,25 @@ public class SortCommand implements Command {
               if (i + 1 < args.length)
                 columnIndex = Integer.parseInt(args[++i]);
               break;
+            case 'S':
+              if (i + 1 < args.length)
+                memoryBudget = SizeOption.parse(args[++i]);
+              break;
+            case 'T':
+              if (i + 1 < args.length)
+                tempDirectory = args[++i];
+              break;
+            case 'k':
+            case 't':
+              String value = j + 1 < cluster.length() ? cluster.substring(j + 1)
+                  : i + 1 < args.length ? args[++i] : "";
+              if (flag == 'k') {
+                keySpecs.add(parseKeySpec(value, flags));
+              } else {
+                separator = parseSeparator(value);
+              }
+              j = cluster.length();
+              break;
             default:
               flags.add(String.valueOf(flag));
           }
@@ -81,6 +209,86 @@ public class SortCommand implements Command {
     }
   }
 
+  private KeySpec parseKeySpec(String definition, List<String> flags) {
+    KeySpec spec = new KeySpec();
+    String[] positions = definition.split(",", 2);
+    parseKeyPosition(positions[0], spec, true, flags);
+    if (positions.length > 1) {
+      parseKeyPosition(positions[1], spec, false, flags);
+    }
+    return spec;
+  }
+
+  private void parseKeyPosition(String position, KeySpec spec, boolean start, List<String> flags) {
+    int i = 0;
+    while (i < position.length() && Character.isDigit(position.charAt(i))) {
+      i++;
+    }
+    int field = Integer.parseInt(position.substring(0, i));
+    int character = start ? 1 : 0;
+    if (i < position.length() && position.charAt(i) == '.') {
+      int charStart = ++i;
+      while (i < position.length() && Character.isDigit(position.charAt(i))) {
+        i++;
+      }
+      character = Integer.parseInt(position.substring(charStart, i));
+    }
+    if (start) {
+      spec.startField = field;
+      spec.startChar = character;
+    } else {
+      spec.endField = field;
+      spec.endChar = character;
+    }
+    for (char option : position.substring(i).toCharArray()) {
+      switch (option) {
+        case 'n':
+          spec.numeric = true;
+          break;
+        case 'r':
+          spec.reverse = true;
+          break;
+        case 'f':
+        case 'd':
+          spec.fold = true;
+          break;
+        case 'b':
+          if (start) {
+            spec.skipStartBlanks = true;
+          } else {
+            spec.skipEndBlanks = true;
+          }
+          break;
+        default:
+          flags.add(String.valueOf(option));
+      }
+    }
+  }
+
+  private Character parseSeparator(String value) {
+    if (value.isEmpty()) {
+      return null;
+    }
+    return value.equals("\\t") ? '\t' : value.charAt(0);
+  }
+
+  private void resolveKeySpecs() {
+    if (keySpecs.isEmpty()) {
+      KeySpec spec = new KeySpec();
+      if (columnSort && columnIndex >= 0) {
+        spec.commaColumn = columnIndex;
+      }
+      keySpecs.add(spec);
+    }
+    for (KeySpec spec : keySpecs) {
+      if (!spec.hasOrderingOptions()) {
+        spec.numeric = numericSort;
+        spec.reverse = reverse;
+        spec.fold = dictionaryOrder || caseInsensitive;
+      }
+    }
+  }
+
   private boolean areFlagsValid(List<String> flags) {
     return flags.stream().allMatch(flag -> VALID_FLAGS.contains(flag));
   }
@@ -91,67 +299,311 @@ public class SortCommand implements Command {
     return pathObj.toString();
   }
 
-  private void sortLines(List<String> lines) {
-    Comparator<String> comparator = getComparator();
+  private void parallelSort(List<Path> inputPaths) throws IOException {
+    if (isPlainNumericSort() && !isOutputAnInput(inputPaths) && radixSort(inputPaths)) {
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      String[] lines = readAllLines(inputPaths, pool);
+      SortKey[] keys = new SortKey[lines.length];
+      pool.submit(() -> Arrays.parallelSetAll(keys, i -> toSortKey(lines[i]))).join();
+      sortKeys(keys, pool);
+      outputSortedLines(Arrays.asList(keys).iterator(), outputFile);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private String[] readAllLines(List<Path> inputPaths, ForkJoinPool pool) throws IOException {
+    if (inputPaths.size() == 1) {
+      return ParallelLineReader.readAllLines(inputPaths.get(0), pool);
+    }
+    List<String[]> fileLines = new ArrayList<>();
+    int lineCount = 0;
+    for (Path inputPath : inputPaths) {
+      String[] lines = ParallelLineReader.readAllLines(inputPath, pool);
+      fileLines.add(lines);
+      lineCount += lines.length;
+    }
+    String[] lines = new String[lineCount];
+    int position = 0;
+    for (String[] file : fileLines) {
+      System.arraycopy(file, 0, lines, position, file.length);
+      position += file.length;
+    }
+    return lines;
+  }
+
+  private void sortKeys(SortKey[] keys, ForkJoinPool pool) {
+    Comparator<SortKey> comparator = getComparator();
+    if (parallelism == 1) {
+      Arrays.sort(keys, comparator);
+    } else {
+      int granularity = Math.max(MIN_SORT_GRANULARITY, keys.length / (parallelism * 4));
+      pool.invoke(new MergeSortTask(keys, new SortKey[keys.length], 0, keys.length, granularity, comparator));
+    }
+  }
+
+  private boolean isPlainNumericSort() {
+    return keySpecs.size() == 1 && keySpecs.get(0).numeric && keySpecs.get(0).coversWholeLine();
+  }
 
-    lines.sort(comparator);
+  private boolean isOutputAnInput(List<Path> inputPaths) throws IOException {
+    if (outputFile == null || !Files.exists(Paths.get(outputFile))) {
+      return false;
+    }
+    for (Path inputPath : inputPaths) {
+      if (Files.isSameFile(inputPath, Paths.get(outputFile))) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    if (unique) {
-      Set<String> uniqueLines = new LinkedHashSet<>(lines);
-      lines.clear();
-      lines.addAll(uniqueLines);
+  private boolean radixSort(List<Path> inputPaths) throws IOException {
+    List<FileChannel> channels = new ArrayList<>();
+    try {
+      for (Path inputPath : inputPaths) {
+        channels.add(FileChannel.open(inputPath, StandardOpenOption.READ));
+      }
+      NumericRadixSorter sorter = NumericRadixSorter.load(channels);
+      if (sorter == null) {
+        return false;
+      }
+      sorter.sort(keySpecs.get(0).reverse);
+      if (outputFile != null) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(outputFile)))) {
+          sorter.write(out, unique);
+        }
+      } else {
+        BufferedOutputStream out = new BufferedOutputStream(System.out);
+        sorter.write(out, unique);
+        out.flush();
+      }
+      return true;
+    } finally {
+      for (FileChannel channel : channels) {
+        channel.close();
+      }
     }
   }
 
-  private Comparator<String> getComparator() {
-    Comparator<String> comparator = Comparator.naturalOrder();
+  private void externalSort(List<Path> inputPaths) throws IOException {
+    try (ExternalSorter sorter = newExternalSorter()) {
+      outputSortedLines(sorter.sort(inputPaths), outputFile);
+    }
+  }
 
-    if (numericSort) {
-      comparator = this::compareNumeric;
-    } else if (dictionaryOrder) {
-      comparator = String::compareToIgnoreCase;
-    } else if (caseInsensitive) {
-      comparator = String.CASE_INSENSITIVE_ORDER;
+  private void mergeSorted(List<Path> inputPaths) throws IOException {
+    try (ExternalSorter sorter = newExternalSorter()) {
+      List<Path> mergeInputs = new ArrayList<>();
+      for (Path inputPath : inputPaths) {
+        mergeInputs.add(isOutputAnInput(List.of(inputPath)) ? sorter.copyToRun(inputPath) : inputPath);
+      }
+      outputSortedLines(sorter.mergeSorted(mergeInputs), outputFile);
     }
+  }
+
+  private ExternalSorter newExternalSorter() {
+    Path tempPath = tempDirectory == null ? null : Paths.get(normalizePath(tempDirectory));
+    return new ExternalSorter(this::toSortKey, getComparator(), memoryBudget, tempPath);
+  }
 
-    if (reverse) {
-      comparator = comparator.reversed();
+  private void topSort(List<Path> inputPaths) throws IOException {
+    Comparator<RankedKey> ranking = Comparator.comparing(RankedKey::key, getComparator())
+        .thenComparingLong(RankedKey::sequence);
+    PriorityQueue<RankedKey> heap = new PriorityQueue<>((int) Math.min(topCount + 1L, TOP_INITIAL_CAPACITY),
+        ranking.reversed());
+    Set<String> retainedLines = new HashSet<>();
+    long sequence = 0;
+    for (Path inputPath : inputPaths) {
+      try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (topCount == 0 || (unique && retainedLines.contains(line))) {
+            continue;
+          }
+          RankedKey candidate = new RankedKey(toSortKey(line), sequence++);
+          if (heap.size() == topCount) {
+            if (ranking.compare(candidate, heap.peek()) >= 0) {
+              continue;
+            }
+            retainedLines.remove(heap.poll().key().line());
+          }
+          heap.add(candidate);
+          if (unique) {
+            retainedLines.add(line);
+          }
+        }
+      }
     }
+    List<RankedKey> top = new ArrayList<>(heap);
+    top.sort(ranking);
+    outputSortedLines(top.stream().map(RankedKey::key).iterator(), outputFile);
+  }
 
-    if (columnSort && columnIndex >= 0) {
-      comparator = Comparator.comparing(
-          line -> getColumnValue(line, columnIndex),
-          comparator);
+  private SortKey toSortKey(String line) {
+    String[] values = new String[keySpecs.size()];
+    double[] numbers = new double[keySpecs.size()];
+    long numericMask = 0;
+    for (int i = 0; i < values.length; i++) {
+      KeySpec spec = keySpecs.get(i);
+      String value = extractKey(line, spec);
+      if (spec.numeric) {
+        try {
+          numbers[i] = Double.parseDouble(value);
+          numericMask |= 1L << i;
+        } catch (NumberFormatException e) {
+          numbers[i] = Double.NaN;
+        }
+      } else if (spec.fold) {
+        value = foldCase(value);
+      }
+      values[i] = value;
     }
+    return new SortKey(line, values, numbers, numericMask);
+  }
 
+  private Comparator<SortKey> getComparator() {
+    Comparator<SortKey> comparator = null;
+    for (int i = 0; i < keySpecs.size(); i++) {
+      int key = i;
+      Comparator<SortKey> keyComparator = keySpecs.get(i).numeric
+          ? (o1, o2) -> compareNumeric(o1, o2, key)
+          : (o1, o2) -> o1.values()[key].compareTo(o2.values()[key]);
+      if (keySpecs.get(i).reverse) {
+        keyComparator = keyComparator.reversed();
+      }
+      comparator = comparator == null ? keyComparator : comparator.thenComparing(keyComparator);
+    }
     return comparator;
   }
 
+  private String extractKey(String line, KeySpec spec) {
+    if (spec.coversWholeLine()) {
+      return line;
+    }
+    if (spec.commaColumn >= 0) {
+      return getColumnValue(line, spec.commaColumn);
+    }
+    int fieldStart = fieldStart(line, spec.startField);
+    int fieldEnd = fieldEnd(line, fieldStart);
+    int start = spec.skipStartBlanks ? skipBlanks(line, fieldStart, fieldEnd) : fieldStart;
+    start = Math.min(start + spec.startChar - 1, fieldEnd);
+    int end = line.length();
+    if (spec.endField > 0) {
+      int endFieldStart = fieldStart(line, spec.endField);
+      int endFieldEnd = fieldEnd(line, endFieldStart);
+      if (spec.endChar == 0) {
+        end = endFieldEnd;
+      } else {
+        int charStart = spec.skipEndBlanks ? skipBlanks(line, endFieldStart, endFieldEnd) : endFieldStart;
+        end = Math.min(charStart + spec.endChar, endFieldEnd);
+      }
+    }
+    return end > start ? line.substring(start, end) : "";
+  }
+
+  private int fieldStart(String line, int field) {
+    int position = 0;
+    for (int i = 1; i < field && position < line.length(); i++) {
+      position = fieldEnd(line, position);
+      if (separator != null && position < line.length()) {
+        position++;
+      }
+    }
+    return position;
+  }
+
+  private int fieldEnd(String line, int fieldStart) {
+    if (separator != null) {
+      int end = line.indexOf(separator, fieldStart);
+      return end < 0 ? line.length() : end;
+    }
+    int position = skipBlanks(line, fieldStart, line.length());
+    while (position < line.length() && !isBlank(line.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private int skipBlanks(String line, int position, int limit) {
+    while (position < limit && isBlank(line.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private boolean isBlank(char ch) {
+    return ch == ' ' || ch == '\t';
+  }
+
   private String getColumnValue(String line, int columnIndex) {
-    String[] parts = line.split(",");
-    return columnIndex < parts.length ? parts[columnIndex].trim() : "";
+    int start = 0;
+    for (int i = 0; i < columnIndex; i++) {
+      int comma = line.indexOf(',', start);
+      if (comma < 0) {
+        return "";
+      }
+      start = comma + 1;
+    }
+    int end = line.indexOf(',', start);
+    return line.substring(start, end < 0 ? line.length() : end).trim();
   }
 
-  private int compareNumeric(String o1, String o2) {
-    try {
-      double num1 = Double.parseDouble(o1);
-      double num2 = Double.parseDouble(o2);
-      return Double.compare(num1, num2);
-    } catch (NumberFormatException e) {
-      return o1.compareTo(o2);
+  private String foldCase(String value) {
+    StringBuilder folded = null;
+    for (int i = 0; i < value.length();) {
+      int codePoint = value.codePointAt(i);
+      int foldedCodePoint = Character.toLowerCase(Character.toUpperCase(codePoint));
+      if (folded == null && foldedCodePoint != codePoint) {
+        folded = new StringBuilder(value.length()).append(value, 0, i);
+      }
+      if (folded != null) {
+        folded.appendCodePoint(foldedCodePoint);
+      }
+      i += Character.charCount(codePoint);
+    }
+    return folded == null ? value : folded.toString();
+  }
+
+  private int compareNumeric(SortKey o1, SortKey o2, int key) {
+    if (o1.isNumeric(key) && o2.isNumeric(key)) {
+      return Double.compare(o1.numbers()[key], o2.numbers()[key]);
     }
+    return o1.values()[key].compareTo(o2.values()[key]);
   }
 
-  private void outputSortedLines(List<String> lines, String outputFile) throws IOException {
+  private void outputSortedLines(Iterator<SortKey> keys, String outputFile) throws IOException {
     if (outputFile != null) {
       try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
-        for (String line : lines) {
-          writer.write(line);
-          writer.newLine();
-        }
+        writeLines(keys, writer);
       }
     } else {
-      lines.forEach(System.out::println);
+      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out));
+      writeLines(keys, writer);
+      writer.flush();
+    }
+  }
+
+  private void writeLines(Iterator<SortKey> keys, BufferedWriter writer) throws IOException {
+    Comparator<SortKey> comparator = getComparator();
+    Set<String> equalGroup = new HashSet<>();
+    SortKey groupHead = null;
+    while (keys.hasNext()) {
+      SortKey key = keys.next();
+      if (unique) {
+        if (groupHead == null || comparator.compare(groupHead, key) != 0) {
+          groupHead = key;
+          equalGroup.clear();
+        }
+        if (!equalGroup.add(key.line())) {
+          continue;
+        }
+      }
+      writer.write(key.line());
+      writer.newLine();
     }
   }
-}
\ No newline at end of file
+}
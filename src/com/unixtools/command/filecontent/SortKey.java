@@ -0,0 +1,19 @@
+package com.unixtools.command.filecontent;
+
+record SortKey(String line, String[] values, double[] numbers, long numericMask) {
+  private static final long OBJECT_OVERHEAD_BYTES = 96;
+
+  boolean isNumeric(int key) {
+    return (numericMask & (1L << key)) != 0;
+  }
+
+  long estimatedSize() {
+    long size = OBJECT_OVERHEAD_BYTES + 2L * line.length();
+    for (String value : values) {
+      if (value != line) {
+        size += 48 + 2L * value.length();
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,258 @@
+package com.unixtools.command.filecontent;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+class SpillingLineCounter implements Closeable {
+  private static final int PARTITION_BITS = 6;
+  private static final int PARTITIONS = 1 << PARTITION_BITS;
+  private static final int MAX_LEVEL = 4;
+  private static final long ENTRY_OVERHEAD = 96;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  record LineCount(String line, long firstIndex, long count) {
+  }
+
+  private final long memoryBudget;
+  private final Path tempDirectory;
+  private final List<Path> tempFiles = new ArrayList<>();
+  private final List<Closeable> openStreams = new ArrayList<>();
+  private final Partitioner root = new Partitioner(0);
+  private long sequence = 0;
+
+  SpillingLineCounter(long memoryBudget, Path tempDirectory) {
+    this.memoryBudget = memoryBudget;
+    this.tempDirectory = tempDirectory;
+  }
+
+  void add(String line) throws IOException {
+    root.add(line, sequence++, 1);
+  }
+
+  Iterator<LineCount> finish() throws IOException {
+    if (!root.hasSpilled()) {
+      return root.entries();
+    }
+    return merge(root.aggregatePartitions());
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Closeable stream : openStreams) {
+      stream.close();
+    }
+    openStreams.clear();
+    for (Path tempFile : tempFiles) {
+      Files.deleteIfExists(tempFile);
+    }
+    tempFiles.clear();
+  }
+
+  private Path aggregate(Path input, int level) throws IOException {
+    Partitioner partitioner = new Partitioner(level);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input), BUFFER_SIZE))) {
+      LineCount record;
+      while ((record = readRecord(in)) != null) {
+        partitioner.add(record.line(), record.firstIndex(), record.count());
+      }
+    }
+    delete(List.of(input));
+
+    Path result = createTempFile();
+    try (DataOutputStream out = openOutput(result)) {
+      if (!partitioner.hasSpilled()) {
+        writeRecords(partitioner.entries(), out);
+      } else {
+        List<Path> results = partitioner.aggregatePartitions();
+        writeRecords(merge(results), out);
+        closeStreams();
+        delete(results);
+      }
+    }
+    return result;
+  }
+
+  private Iterator<LineCount> merge(List<Path> runs) throws IOException {
+    PriorityQueue<RunCursor> heap = new PriorityQueue<>(
+        Comparator.comparingLong(cursor -> cursor.current.firstIndex()));
+    for (Path run : runs) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+      openStreams.add(in);
+      RunCursor cursor = new RunCursor(in);
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return !heap.isEmpty();
+      }
+
+      @Override
+      public LineCount next() {
+        RunCursor cursor = heap.poll();
+        if (cursor == null) {
+          throw new NoSuchElementException();
+        }
+        LineCount record = cursor.current;
+        try {
+          if (cursor.advance()) {
+            heap.add(cursor);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return record;
+      }
+    };
+  }
+
+  private void writeRecords(Iterator<LineCount> records, DataOutputStream out) throws IOException {
+    while (records.hasNext()) {
+      writeRecord(records.next(), out);
+    }
+  }
+
+  private static void writeRecord(LineCount record, DataOutputStream out) throws IOException {
+    byte[] bytes = record.line().getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    out.writeLong(record.firstIndex());
+    out.writeLong(record.count());
+  }
+
+  private static LineCount readRecord(DataInputStream in) throws IOException {
+    int length;
+    try {
+      length = in.readInt();
+    } catch (EOFException e) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new LineCount(new String(bytes, StandardCharsets.UTF_8), in.readLong(), in.readLong());
+  }
+
+  private DataOutputStream openOutput(Path path) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+  }
+
+  private void closeStreams() throws IOException {
+    for (Closeable stream : openStreams) {
+      stream.close();
+    }
+    openStreams.clear();
+  }
+
+  private void delete(List<Path> paths) throws IOException {
+    for (Path path : paths) {
+      if (tempFiles.remove(path)) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  private Path createTempFile() throws IOException {
+    Path tempFile = tempDirectory == null
+        ? Files.createTempFile("uniq", ".part")
+        : Files.createTempFile(tempDirectory, "uniq", ".part");
+    tempFiles.add(tempFile);
+    return tempFile;
+  }
+
+  private class Partitioner {
+    final int level;
+    final Map<String, long[]> counts = new LinkedHashMap<>();
+    long bufferedBytes = 0;
+    Path[] partitions;
+    DataOutputStream[] writers;
+
+    Partitioner(int level) {
+      this.level = level;
+    }
+
+    void add(String line, long firstIndex, long count) throws IOException {
+      long[] entry = counts.get(line);
+      if (entry != null) {
+        entry[0] = Math.min(entry[0], firstIndex);
+        entry[1] += count;
+        return;
+      }
+      counts.put(line, new long[] { firstIndex, count });
+      bufferedBytes += ENTRY_OVERHEAD + 2L * line.length();
+      if (bufferedBytes >= memoryBudget && level < MAX_LEVEL) {
+        spill();
+      }
+    }
+
+    boolean hasSpilled() {
+      return writers != null;
+    }
+
+    Iterator<LineCount> entries() {
+      return counts.entrySet().stream()
+          .map(entry -> new LineCount(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+          .iterator();
+    }
+
+    List<Path> aggregatePartitions() throws IOException {
+      spill();
+      for (DataOutputStream writer : writers) {
+        if (writer != null) {
+          writer.close();
+        }
+      }
+      List<Path> results = new ArrayList<>();
+      for (Path partition : partitions) {
+        if (partition != null) {
+          results.add(aggregate(partition, level + 1));
+        }
+      }
+      return results;
+    }
+
+    private void spill() throws IOException {
+      if (writers == null) {
+        partitions = new Path[PARTITIONS];
+        writers = new DataOutputStream[PARTITIONS];
+      }
+      for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+        int partition = partition(entry.getKey());
+        if (writers[partition] == null) {
+          partitions[partition] = createTempFile();
+          writers[partition] = openOutput(partitions[partition]);
+        }
+        writeRecord(new LineCount(entry.getKey(), entry.getValue()[0], entry.getValue()[1]), writers[partition]);
+      }
+      counts.clear();
+      bufferedBytes = 0;
+    }
+
+    private int partition(String line) {
+      int hash = line.hashCode() ^ (level * 0x9E3779B9);
+      hash ^= hash >>> 16;
+      hash *= 0x85EBCA6B;
+      hash ^= hash >>> 13;
+      hash *= 0xC2B2AE35;
+      hash ^= hash >>> 16;
+      return hash >>> (Integer.SIZE - PARTITION_BITS);
+    }
+  }
+
+  private static class RunCursor {
+    final DataInputStream in;
+    LineCount current;
+
+    RunCursor(DataInputStream in) {
+      this.in = in;
+    }
+
+    boolean advance() throws IOException {
+      current = readRecord(in);
+      return current != null;
+    }
+  }
+}
@@ -1,19 +1,47 @@
 package com.unixtools.command.filecontent;
 
 import com.unixtools.core.Command;
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TrCommand implements Command {
   private static final String VALID_FLAGS = "dsc";
+  private static final int BLOCK_SIZE = 256 * 1024;
+  private static final long LARGE_FILE_THRESHOLD = 10 * 1024 * 1024;
+  private static final int PARALLEL_BLOCK_SIZE = 4 * 1024 * 1024;
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+  private static final int REORDER_WINDOW = PARALLELISM * 2;
   private boolean deleteMode = false;
   private boolean squeezeMode = false;
   private boolean complementMode = false;
   private String set1;
   private String set2;
+  private String inputFile = null;
+
+  private record Block(byte[] bytes, char[] chars, int length) {
+  }
 
   @Override
   public void execute(String[] args) {
@@ -26,6 +54,11 @@ public class TrCommand implements Command {
       return;
     }
 
+    int expectedSets = (deleteMode || squeezeMode) ? 1 : 2;
+    if (sets.size() == expectedSets + 1) {
+      inputFile = sets.remove(expectedSets);
+    }
+
     if (deleteMode && sets.size() != 1) {
       System.out.println("tr: Exactly one set is required with delete mode.");
       return;
@@ -44,7 +77,19 @@ public class TrCommand implements Command {
     set2 = sets.size() > 1 ? expandSet(sets.get(1)) : "";
 
     try {
-      processInput();
+      TranslationTable table = new TranslationTable(set1, set2, deleteMode, squeezeMode, complementMode);
+      if (inputFile == null) {
+        processInput(System.in, table);
+      } else {
+        Path path = Paths.get(normalizePath(inputFile));
+        if (PARALLELISM > 1 && Files.size(path) >= LARGE_FILE_THRESHOLD) {
+          processFileConcurrently(path, table);
+        } else {
+          try (InputStream in = Files.newInputStream(path)) {
+            processInput(in, table);
+          }
+        }
+      }
     } catch (IOException e) {
       System.err.println("Error processing input: " + e.getMessage());
     }
@@ -77,6 +122,12 @@ public class TrCommand implements Command {
     return flags.stream().allMatch(flag -> VALID_FLAGS.contains(flag));
   }
 
+  private String normalizePath(String path) {
+    String normalizedPath = path.replace("\\", "/");
+    Path pathObj = Paths.get(normalizedPath).normalize();
+    return pathObj.toString();
+  }
+
   private String expandSet(String set) {
     set = set.replace("[:alnum:]", "a-zA-zA-Z0-9")
         .replace("[:alpha:]", "a-zA-Z")
@@ -100,50 +151,126 @@ public class TrCommand implements Command {
     return expandedSet.toString();
   }
 
-  private void processInput() throws IOException {
-    try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        String processedLine = processLine(line);
-        System.out.println(processedLine);
+  private void processInput(InputStream in, TranslationTable table) throws IOException {
+    if (table.isByteOriented()) {
+      byte[] input = new byte[BLOCK_SIZE];
+      byte[] output = new byte[BLOCK_SIZE];
+      int previous = -1;
+      int read;
+      while ((read = in.read(input)) > 0) {
+        int written = table.apply(input, 0, read, output, previous);
+        if (written > 0) {
+          previous = output[written - 1] & 0xFF;
+          System.out.write(output, 0, written);
+        }
       }
+      System.out.flush();
+      return;
     }
-  }
 
-  private String processLine(String line) {
-    StringBuilder result = new StringBuilder();
-    char prevChar = '\0';
-
-    for (char ch : line.toCharArray()) {
-      boolean inSet1 = set1.indexOf(ch) != -1;
-
-      if (deleteMode) {
-        boolean shouldDelete = complementMode ? !inSet1 : inSet1;
-        if (shouldDelete)
-          continue;
+    Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    char[] input = new char[BLOCK_SIZE];
+    char[] output = new char[BLOCK_SIZE];
+    int previous = -1;
+    int read;
+    while ((read = reader.read(input)) > 0) {
+      int written = table.apply(input, 0, read, output, previous);
+      if (written > 0) {
+        previous = output[written - 1];
+        writer.write(output, 0, written);
       }
+    }
+    writer.flush();
+  }
 
-      if (squeezeMode) {
-        if (ch == prevChar && inSet1) {
-          continue;
-        }
-      } else if (!deleteMode) {
-        int index = set1.indexOf(ch);
-        if (complementMode) {
-          if (index == -1) {
-            ch = set2.isEmpty() ? ch : set2.charAt(0);
-          }
-        } else {
-          if (index != -1) {
-            ch = (index < set2.length()) ? set2.charAt(index) : set2.charAt(set2.length() - 1);
+  private void processFileConcurrently(Path path, TranslationTable table) throws IOException {
+    Writer writer = table.isByteOriented() ? null : new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+      try {
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        int previous = -1;
+        long start = 0;
+        while (start < fileSize || !pending.isEmpty()) {
+          if (start < fileSize && pending.size() < REORDER_WINDOW) {
+            long end = Math.min(fileSize, start + PARALLEL_BLOCK_SIZE);
+            if (!table.isByteOriented()) {
+              end = nextCharBoundary(channel, end, fileSize);
+            }
+            final long blockStart = start;
+            final long blockEnd = end;
+            pending.add(executor.submit(() -> translateBlock(channel, blockStart, blockEnd, table)));
+            start = end;
+            continue;
           }
+          previous = writeBlock(awaitBlock(pending.poll()), table, previous, writer);
         }
+      } finally {
+        executor.shutdownNow();
       }
+    }
+    if (writer != null) {
+      writer.flush();
+    } else {
+      System.out.flush();
+    }
+  }
 
-      result.append(ch);
-      prevChar = ch;
+  private Block translateBlock(FileChannel channel, long start, long end, TranslationTable table) throws IOException {
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    if (table.isByteOriented()) {
+      byte[] bytes = new byte[(int) (end - start)];
+      mapped.get(bytes);
+      return new Block(bytes, null, table.apply(bytes, 0, bytes.length, bytes, -1));
     }
-    return result.toString();
+    CharBuffer decoded = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(mapped);
+    char[] chars = decoded.array();
+    int offset = decoded.arrayOffset();
+    return new Block(null, chars, table.apply(chars, offset, decoded.limit(), chars, -1));
   }
 
+  private int writeBlock(Block block, TranslationTable table, int previous, Writer writer) throws IOException {
+    if (block.length() == 0) {
+      return previous;
+    }
+    if (block.bytes() != null) {
+      byte[] bytes = block.bytes();
+      int first = bytes[0] & 0xFF;
+      int skip = table.squeezes(first) && first == previous ? 1 : 0;
+      System.out.write(bytes, skip, block.length() - skip);
+      return bytes[block.length() - 1] & 0xFF;
+    }
+    char[] chars = block.chars();
+    int skip = table.squeezes(chars[0]) && chars[0] == previous ? 1 : 0;
+    writer.write(chars, skip, block.length() - skip);
+    return chars[block.length() - 1];
+  }
+
+  private Block awaitBlock(Future<Block> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while translating file", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+    }
+  }
+
+  private long nextCharBoundary(FileChannel channel, long position, long fileSize) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    while (position < fileSize) {
+      buffer.clear();
+      if (channel.read(buffer, position) <= 0 || (buffer.get(0) & 0xC0) != 0x80) {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
 }
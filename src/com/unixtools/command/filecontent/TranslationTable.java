@@ -0,0 +1,78 @@
+package com.unixtools.command.filecontent;
+
+class TranslationTable {
+  private static final int CHAR_COUNT = Character.MAX_VALUE + 1;
+  private static final int ASCII_LIMIT = 0x80;
+
+  private final char[] translation = new char[CHAR_COUNT];
+  private final boolean[] deleted = new boolean[CHAR_COUNT];
+  private final boolean[] squeezed = new boolean[CHAR_COUNT];
+  private final boolean byteOriented;
+
+  TranslationTable(String set1, String set2, boolean delete, boolean squeeze, boolean complement) {
+    int[] positions = new int[CHAR_COUNT];
+    for (int i = set1.length() - 1; i >= 0; i--) {
+      positions[set1.charAt(i)] = i + 1;
+    }
+    boolean translate = !delete && !squeeze;
+    for (int c = 0; c < CHAR_COUNT; c++) {
+      boolean inSet1 = positions[c] != 0;
+      deleted[c] = delete && (complement ? !inSet1 : inSet1);
+      squeezed[c] = squeeze && inSet1;
+      translation[c] = (char) c;
+      if (translate && !set2.isEmpty()) {
+        if (complement && !inSet1) {
+          translation[c] = set2.charAt(0);
+        } else if (!complement && inSet1) {
+          translation[c] = set2.charAt(Math.min(positions[c] - 1, set2.length() - 1));
+        }
+      }
+    }
+    byteOriented = isAscii(set1) && isAscii(set2) && !(translate && complement);
+  }
+
+  boolean isByteOriented() {
+    return byteOriented;
+  }
+
+  boolean squeezes(int c) {
+    return squeezed[c];
+  }
+
+  int apply(byte[] input, int offset, int length, byte[] output, int previous) {
+    int written = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int c = input[i] & 0xFF;
+      if (deleted[c] || (squeezed[c] && c == previous)) {
+        continue;
+      }
+      char translated = translation[c];
+      output[written++] = (byte) translated;
+      previous = translated;
+    }
+    return written;
+  }
+
+  int apply(char[] input, int offset, int length, char[] output, int previous) {
+    int written = 0;
+    for (int i = offset; i < offset + length; i++) {
+      char c = input[i];
+      if (deleted[c] || (squeezed[c] && c == previous)) {
+        continue;
+      }
+      char translated = translation[c];
+      output[written++] = translated;
+      previous = translated;
+    }
+    return written;
+  }
+
+  private static boolean isAscii(String set) {
+    for (int i = 0; i < set.length(); i++) {
+      if (set.charAt(i) >= ASCII_LIMIT) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,399 @@
+package com.unixtools.command.filecontent;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+class TrigramIndex {
+  static final String INDEX_FILE_NAME = ".grepindex";
+  private static final int MAGIC = 0x47545249;
+  private static final int VERSION = 1;
+  private static final int TRIGRAM_SPACE = 1 << 24;
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final String SINGLE_CHAR_ESCAPES = "dDwWsSbBhHvVRXAzZGtnrfae";
+
+  private final Path indexFile;
+  private final Map<String, Integer> fileIds = new HashMap<>();
+  private final long[] sizes;
+  private final long[] modifiedTimes;
+  private final Map<Integer, long[]> postingRanges = new HashMap<>();
+
+  private TrigramIndex(Path indexFile, int fileCount) {
+    this.indexFile = indexFile;
+    this.sizes = new long[fileCount];
+    this.modifiedTimes = new long[fileCount];
+  }
+
+  static int build(Path directory) throws IOException {
+    List<String> paths = new ArrayList<>();
+    List<long[]> stats = new ArrayList<>();
+    Map<Integer, GrowableIntList> postings = new HashMap<>();
+    BitSet seen = new BitSet(TRIGRAM_SPACE);
+    Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile() && !file.getFileName().toString().equals(INDEX_FILE_NAME)) {
+          try {
+            collectTrigrams(file, seen);
+          } catch (IOException e) {
+            System.err.println("Error indexing file: " + e.getMessage());
+            seen.clear();
+            return FileVisitResult.CONTINUE;
+          }
+          int fileId = paths.size();
+          paths.add(relativeKey(directory, file));
+          stats.add(new long[] { attrs.size(), attrs.lastModifiedTime().toMillis() });
+          for (int trigram = seen.nextSetBit(0); trigram >= 0; trigram = seen.nextSetBit(trigram + 1)) {
+            postings.computeIfAbsent(trigram, key -> new GrowableIntList()).add(fileId);
+          }
+          seen.clear();
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        System.err.println("Error indexing file: " + e.getMessage());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    write(directory.resolve(INDEX_FILE_NAME), paths, stats, postings);
+    return paths.size();
+  }
+
+  static TrigramIndex load(Path directory) throws IOException {
+    Path indexFile = directory.resolve(INDEX_FILE_NAME);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported index format: " + indexFile);
+      }
+      TrigramIndex index = new TrigramIndex(indexFile, in.readInt());
+      for (int i = 0; i < index.sizes.length; i++) {
+        index.fileIds.put(in.readUTF(), i);
+        index.sizes[i] = in.readLong();
+        index.modifiedTimes[i] = in.readLong();
+      }
+      int trigramCount = in.readInt();
+      for (int i = 0; i < trigramCount; i++) {
+        index.postingRanges.put(in.readInt(), new long[] { in.readLong(), in.readInt() });
+      }
+      return index;
+    }
+  }
+
+  static List<List<String>> requiredLiterals(String regex) {
+    if (regex.contains("(?") || regex.contains("\\Q")) {
+      return null;
+    }
+    List<List<String>> alternatives = new ArrayList<>();
+    for (String branch : splitTopLevelAlternation(regex)) {
+      List<String> literals = literalRuns(branch);
+      if (literals == null || literals.isEmpty()) {
+        return null;
+      }
+      alternatives.add(literals);
+    }
+    return alternatives;
+  }
+
+  int fileId(Path directory, Path file, BasicFileAttributes attrs) {
+    Integer fileId = fileIds.get(relativeKey(directory, file));
+    if (fileId == null || sizes[fileId] != attrs.size()
+        || modifiedTimes[fileId] != attrs.lastModifiedTime().toMillis()) {
+      return -1;
+    }
+    return fileId;
+  }
+
+  BitSet candidates(List<List<String>> alternatives) throws IOException {
+    if (alternatives == null) {
+      return null;
+    }
+    BitSet candidates = new BitSet(sizes.length);
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      for (List<String> literals : alternatives) {
+        Set<Integer> trigrams = new HashSet<>();
+        for (String literal : literals) {
+          addTrigrams(literal.getBytes(StandardCharsets.UTF_8), trigrams);
+        }
+        if (trigrams.isEmpty()) {
+          return null;
+        }
+        BitSet matching = null;
+        for (int trigram : trigrams) {
+          BitSet files = readPostings(channel, trigram);
+          if (matching == null) {
+            matching = files;
+          } else {
+            matching.and(files);
+          }
+          if (matching.isEmpty()) {
+            break;
+          }
+        }
+        candidates.or(matching);
+      }
+    }
+    return candidates;
+  }
+
+  private BitSet readPostings(FileChannel channel, int trigram) throws IOException {
+    BitSet files = new BitSet(sizes.length);
+    long[] range = postingRanges.get(trigram);
+    if (range == null) {
+      return files;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) range[1]);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, range[0] + buffer.position()) < 0) {
+        throw new EOFException("Truncated index: " + indexFile);
+      }
+    }
+    buffer.flip();
+    int fileId = 0;
+    while (buffer.hasRemaining()) {
+      fileId += readVarInt(buffer);
+      files.set(fileId);
+    }
+    return files;
+  }
+
+  private static void write(Path indexFile, List<String> paths, List<long[]> stats,
+      Map<Integer, GrowableIntList> postings) throws IOException {
+    int[] trigrams = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    ByteArrayOutputStream postingData = new ByteArrayOutputStream();
+    long[] offsets = new long[trigrams.length];
+    int[] lengths = new int[trigrams.length];
+    for (int i = 0; i < trigrams.length; i++) {
+      GrowableIntList fileIds = postings.get(trigrams[i]);
+      offsets[i] = postingData.size();
+      int previous = 0;
+      for (int j = 0; j < fileIds.size; j++) {
+        writeVarInt(postingData, fileIds.values[j] - previous);
+        previous = fileIds.values[j];
+      }
+      lengths[i] = postingData.size() - (int) offsets[i];
+    }
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(header)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(paths.size());
+      for (int i = 0; i < paths.size(); i++) {
+        out.writeUTF(paths.get(i));
+        out.writeLong(stats.get(i)[0]);
+        out.writeLong(stats.get(i)[1]);
+      }
+      out.writeInt(trigrams.length);
+    }
+    long dataStart = header.size() + (long) trigrams.length * (Integer.BYTES + Long.BYTES + Integer.BYTES);
+
+    Path tempFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      header.writeTo(out);
+      for (int i = 0; i < trigrams.length; i++) {
+        out.writeInt(trigrams[i]);
+        out.writeLong(dataStart + offsets[i]);
+        out.writeInt(lengths[i]);
+      }
+      postingData.writeTo(out);
+    }
+    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void collectTrigrams(Path file, BitSet trigrams) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] buffer = new byte[READ_BUFFER_SIZE];
+      int window = 0;
+      long seen = 0;
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        for (int i = 0; i < read; i++) {
+          window = ((window << 8) | fold(buffer[i])) & (TRIGRAM_SPACE - 1);
+          if (++seen >= 3) {
+            trigrams.set(window);
+          }
+        }
+      }
+    }
+  }
+
+  private static void addTrigrams(byte[] bytes, Set<Integer> trigrams) {
+    for (int i = 0; i + 2 < bytes.length; i++) {
+      trigrams.add((fold(bytes[i]) << 16) | (fold(bytes[i + 1]) << 8) | fold(bytes[i + 2]));
+    }
+  }
+
+  private static int fold(byte b) {
+    return (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b) & 0xFF;
+  }
+
+  private static String relativeKey(Path directory, Path file) {
+    return directory.relativize(file).toString().replace('\\', '/');
+  }
+
+  private static List<String> splitTopLevelAlternation(String regex) {
+    List<String> branches = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < regex.length(); i++) {
+      char ch = regex.charAt(i);
+      if (ch == '\\') {
+        i++;
+      } else if (ch == '[') {
+        i = skipCharacterClass(regex, i);
+      } else if (ch == '(') {
+        depth++;
+      } else if (ch == ')') {
+        depth--;
+      } else if (ch == '|' && depth == 0) {
+        branches.add(regex.substring(start, i));
+        start = i + 1;
+      }
+    }
+    branches.add(regex.substring(start));
+    return branches;
+  }
+
+  private static List<String> literalRuns(String branch) {
+    List<String> runs = new ArrayList<>();
+    StringBuilder run = new StringBuilder();
+    for (int i = 0; i < branch.length(); i++) {
+      char ch = branch.charAt(i);
+      switch (ch) {
+        case '\\':
+          if (i + 1 < branch.length() && !Character.isLetterOrDigit(branch.charAt(i + 1))) {
+            run.append(branch.charAt(++i));
+          } else if (i + 1 < branch.length() && SINGLE_CHAR_ESCAPES.indexOf(branch.charAt(i + 1)) >= 0) {
+            i++;
+            flushRun(run, runs);
+          } else {
+            return null;
+          }
+          break;
+        case '?':
+        case '*':
+          dropLastChar(run);
+          flushRun(run, runs);
+          break;
+        case '{':
+          dropLastChar(run);
+          flushRun(run, runs);
+          while (i < branch.length() && branch.charAt(i) != '}') {
+            i++;
+          }
+          break;
+        case '+':
+        case '.':
+        case '^':
+        case '$':
+          flushRun(run, runs);
+          break;
+        case '[':
+          flushRun(run, runs);
+          i = skipCharacterClass(branch, i);
+          break;
+        case '(':
+          flushRun(run, runs);
+          i = skipGroup(branch, i);
+          break;
+        case '|':
+        case ')':
+          return List.of();
+        default:
+          run.append(ch);
+      }
+    }
+    flushRun(run, runs);
+    return runs;
+  }
+
+  private static void dropLastChar(StringBuilder run) {
+    if (run.length() > 0) {
+      run.setLength(run.length() - Character.charCount(run.codePointBefore(run.length())));
+    }
+  }
+
+  private static void flushRun(StringBuilder run, List<String> runs) {
+    if (run.length() >= 3) {
+      runs.add(run.toString());
+    }
+    run.setLength(0);
+  }
+
+  private static int skipCharacterClass(String regex, int open) {
+    int i = open + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+    int depth = 1;
+    for (; i < regex.length(); i++) {
+      char ch = regex.charAt(i);
+      if (ch == '\\') {
+        i++;
+      } else if (ch == '[') {
+        depth++;
+      } else if (ch == ']' && --depth == 0) {
+        return i;
+      }
+    }
+    return regex.length();
+  }
+
+  private static int skipGroup(String regex, int open) {
+    int depth = 0;
+    for (int i = open; i < regex.length(); i++) {
+      char ch = regex.charAt(i);
+      if (ch == '\\') {
+        i++;
+      } else if (ch == '[') {
+        i = skipCharacterClass(regex, i);
+      } else if (ch == '(') {
+        depth++;
+      } else if (ch == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    return regex.length();
+  }
+
+  private static void writeVarInt(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private static int readVarInt(ByteBuffer buffer) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static class GrowableIntList {
+    int[] values = new int[4];
+    int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+}
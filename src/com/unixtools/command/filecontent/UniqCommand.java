@@ -3,18 +3,69 @@ package com.unixtools.command.filecontent;
 import com.unixtools.core.Command;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class UniqCommand implements Command {
-  private static final String VALID_FLAGS = "cdui";
+  private static final String VALID_FLAGS = "cduiaST";
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+  private static final long SKETCH_SEGMENT_SIZE = 64L * 1024 * 1024;
+  private static final long LARGE_FILE_THRESHOLD = 10L * 1024 * 1024;
+  private static final long MAX_SHARD_SIZE = 512L * 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
   private boolean countOccurrences = false;
   private boolean onlyDuplicates = false;
   private boolean onlyUniques = false;
   private boolean ignoreCase = false;
+  private boolean adjacentOnly = false;
   private String inputFilePath = null;
   private String outputFilePath = null;
+  private long memoryBudget = -1;
+  private String tempDirectory = null;
+  private boolean estimateDistinct = false;
+  private int heavyHitterCount = -1;
+  private double sketchError = 0.001;
+  private double sketchConfidence = 0.99;
+
+  private class LineSketches {
+    final HyperLogLog distinct;
+    final HeavyHitters heavy;
+
+    LineSketches(HyperLogLog distinct, HeavyHitters heavy) {
+      this.distinct = distinct;
+      this.heavy = heavy;
+    }
+
+    LineSketches emptyCopy() {
+      return new LineSketches(distinct == null ? null : distinct.emptyCopy(),
+          heavy == null ? null : heavy.emptyCopy());
+    }
+
+    void add(byte[] bytes, int offset, int length) {
+      long hash = hashLine(bytes, offset, length);
+      if (distinct != null) {
+        distinct.add(hash);
+      }
+      if (heavy != null) {
+        heavy.add(hash, bytes, offset, length);
+      }
+    }
+
+    void merge(LineSketches other) {
+      if (distinct != null) {
+        distinct.merge(other.distinct);
+      }
+      if (heavy != null) {
+        heavy.merge(other.heavy);
+      }
+    }
+  }
 
   @Override
   public void execute(String[] args) {
@@ -26,7 +77,51 @@ public class UniqCommand implements Command {
       return;
     }
 
+    if (estimateDistinct || heavyHitterCount >= 0) {
+      if (!(sketchError > 0 && sketchError < 1 && sketchConfidence > 0 && sketchConfidence < 1)) {
+        System.out.println("Invalid sketch options. --error and --confidence must be between 0 and 1.");
+        return;
+      }
+      try {
+        outputProcessedLines(formatSketches(sketchInput()), outputFilePath);
+      } catch (IOException | UncheckedIOException e) {
+        System.err.println("Error processing file: " + e.getMessage());
+      }
+      return;
+    }
+
+    if (adjacentOnly) {
+      try (BufferedReader reader = openInput()) {
+        outputAdjacentLines(reader, outputFilePath);
+      } catch (IOException e) {
+        System.err.println("Error processing file: " + e.getMessage());
+      }
+      return;
+    }
+
+    if (memoryBudget > 0) {
+      Path tempPath = tempDirectory == null ? null : Paths.get(normalizePath(tempDirectory));
+      try (BufferedReader reader = openInput();
+          SpillingLineCounter counter = new SpillingLineCounter(memoryBudget, tempPath)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          counter.add(ignoreCase ? line.toLowerCase() : line);
+        }
+        outputCountedLines(counter.finish(), outputFilePath);
+      } catch (IOException | UncheckedIOException e) {
+        System.err.println("Error processing file: " + e.getMessage());
+      }
+      return;
+    }
+
     try {
+      if (inputFilePath != null && !inputFilePath.equals("-")) {
+        Path inputPath = Paths.get(normalizePath(inputFilePath));
+        if (Files.size(inputPath) >= LARGE_FILE_THRESHOLD) {
+          outputCountedLines(countLinesConcurrently(inputPath), outputFilePath);
+          return;
+        }
+      }
       List<String> lines = (inputFilePath == null || inputFilePath.equals("-"))
           ? new BufferedReader(new InputStreamReader(System.in)).lines().collect(Collectors.toList())
           : Files.readAllLines(Paths.get(normalizePath(inputFilePath)));
@@ -40,9 +135,26 @@ public class UniqCommand implements Command {
 
   private void parseArguments(String[] args, List<String> flags) {
     for (int i = 0; i < args.length; i++) {
-      if (args[i].startsWith("-") && args[i].length() > 1) {
+      if (args[i].equals("--distinct")) {
+        estimateDistinct = true;
+      } else if (args[i].equals("--heavy") || args[i].equals("--error") || args[i].equals("--confidence")) {
+        if (i + 1 < args.length) {
+          String value = args[++i];
+          switch (args[i - 1]) {
+            case "--heavy" -> heavyHitterCount = Math.max(0, Integer.parseInt(value));
+            case "--error" -> sketchError = Double.parseDouble(value);
+            default -> sketchConfidence = Double.parseDouble(value);
+          }
+        }
+      } else if (args[i].startsWith("-") && args[i].length() > 1) {
         for (char flag : args[i].substring(1).toCharArray()) {
-          processFlag(flag, flags);
+          if (flag == 'S' && i + 1 < args.length) {
+            memoryBudget = SizeOption.parse(args[++i]);
+          } else if (flag == 'T' && i + 1 < args.length) {
+            tempDirectory = args[++i];
+          } else {
+            processFlag(flag, flags);
+          }
         }
       } else {
         if (inputFilePath == null) {
@@ -68,6 +180,9 @@ public class UniqCommand implements Command {
       case 'i':
         ignoreCase = true;
         break;
+      case 'a':
+        adjacentOnly = true;
+        break;
       default:
         flags.add(String.valueOf(flag));
     }
@@ -97,15 +212,295 @@ public class UniqCommand implements Command {
   }
 
   private boolean filterCondition(Map.Entry<String, Integer> entry) {
+    return filterCondition(entry.getValue());
+  }
+
+  private boolean filterCondition(long count) {
     if (onlyDuplicates)
-      return entry.getValue() > 1;
+      return count > 1;
     if (onlyUniques)
-      return entry.getValue() == 1;
+      return count == 1;
     return true;
   }
 
   private String formatLine(Map.Entry<String, Integer> entry) {
-    return countOccurrences ? entry.getValue() + " " + entry.getKey() : entry.getKey();
+    return formatLine(entry.getKey(), entry.getValue());
+  }
+
+  private String formatLine(String line, long count) {
+    return countOccurrences ? count + " " + line : line;
+  }
+
+  private BufferedReader openInput() throws IOException {
+    return (inputFilePath == null || inputFilePath.equals("-"))
+        ? new BufferedReader(new InputStreamReader(System.in))
+        : Files.newBufferedReader(Paths.get(normalizePath(inputFilePath)));
+  }
+
+  private void outputAdjacentLines(BufferedReader reader, String outputFile) throws IOException {
+    if (outputFile != null && !outputFile.equals("-")) {
+      try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
+        processAdjacentLines(reader, writer);
+      }
+    } else {
+      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out));
+      processAdjacentLines(reader, writer);
+      writer.flush();
+    }
+  }
+
+  private void outputCountedLines(Iterator<SpillingLineCounter.LineCount> counts, String outputFile)
+      throws IOException {
+    if (outputFile != null && !outputFile.equals("-")) {
+      try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
+        writeCountedLines(counts, writer);
+      }
+    } else {
+      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out));
+      writeCountedLines(counts, writer);
+      writer.flush();
+    }
+  }
+
+  private void writeCountedLines(Iterator<SpillingLineCounter.LineCount> counts, BufferedWriter writer)
+      throws IOException {
+    while (counts.hasNext()) {
+      SpillingLineCounter.LineCount count = counts.next();
+      writeGroup(count.line(), count.count(), writer);
+    }
+  }
+
+  private LineSketches newSketches() {
+    HyperLogLog distinct = estimateDistinct ? HyperLogLog.withRelativeError(sketchError) : null;
+    HeavyHitters heavy = heavyHitterCount >= 0
+        ? new HeavyHitters(heavyHitterCount, CountMinSketch.withError(sketchError, sketchConfidence))
+        : null;
+    return new LineSketches(distinct, heavy);
+  }
+
+  private LineSketches sketchInput() throws IOException {
+    LineSketches sketches = newSketches();
+    if (inputFilePath == null || inputFilePath.equals("-")) {
+      scanLines(System.in, Long.MAX_VALUE, sketches);
+      return sketches;
+    }
+
+    Path path = Paths.get(normalizePath(inputFilePath));
+    List<long[]> segments;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      segments = LineSegments.split(channel, SKETCH_SEGMENT_SIZE);
+    }
+    if (segments.size() <= 1) {
+      scanSegment(path, 0, Files.size(path), sketches);
+      return sketches;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM, segments.size()));
+    try {
+      List<Future<LineSketches>> futures = new ArrayList<>();
+      for (long[] segment : segments) {
+        futures.add(executor.submit(() -> {
+          LineSketches segmentSketches = sketches.emptyCopy();
+          scanSegment(path, segment[0], segment[1], segmentSketches);
+          return segmentSketches;
+        }));
+      }
+      for (Future<LineSketches> future : futures) {
+        sketches.merge(awaitResult(future));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return sketches;
+  }
+
+  private Iterator<SpillingLineCounter.LineCount> countLinesConcurrently(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long segmentSize = Math.min(MAX_SHARD_SIZE, Math.max(1, (channel.size() + PARALLELISM - 1) / PARALLELISM));
+      List<long[]> segments = LineSegments.split(channel, segmentSize);
+      ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+      try {
+        List<Future<LineCountTable>> futures = new ArrayList<>();
+        for (long[] segment : segments) {
+          futures.add(executor.submit(
+              () -> countShard(channel.map(FileChannel.MapMode.READ_ONLY, segment[0], segment[1] - segment[0]))));
+        }
+        LineCountTable total = new LineCountTable();
+        for (Future<LineCountTable> future : futures) {
+          total.addAll(awaitResult(future));
+        }
+        return total.entries();
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private LineCountTable countShard(ByteBuffer segment) {
+    LineCountTable table = new LineCountTable();
+    byte[] line = new byte[256];
+    int limit = segment.limit();
+    int lineStart = 0;
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && segment.get(lineEnd) != '\n' && segment.get(lineEnd) != '\r') {
+        lineEnd++;
+      }
+      int length = lineEnd - lineStart;
+      if (length > line.length) {
+        line = new byte[Math.max(length, line.length * 2)];
+      }
+      segment.get(lineStart, line, 0, length);
+      addLine(table, line, length);
+      if (lineEnd + 1 < limit && segment.get(lineEnd) == '\r' && segment.get(lineEnd + 1) == '\n') {
+        lineEnd++;
+      }
+      lineStart = lineEnd + 1;
+    }
+    return table;
+  }
+
+  private void addLine(LineCountTable table, byte[] line, int length) {
+    if (ignoreCase) {
+      for (int i = 0; i < length; i++) {
+        if (line[i] < 0) {
+          byte[] folded = new String(line, 0, length, StandardCharsets.UTF_8).toLowerCase()
+              .getBytes(StandardCharsets.UTF_8);
+          table.add(folded, 0, folded.length, hashLine(folded, 0, folded.length), 1);
+          return;
+        }
+        if (line[i] >= 'A' && line[i] <= 'Z') {
+          line[i] += 'a' - 'A';
+        }
+      }
+    }
+    table.add(line, 0, length, hashLine(line, 0, length), 1);
+  }
+
+  private <T> T awaitResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading file", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+    }
+  }
+
+  private void scanSegment(Path path, long start, long end, LineSketches sketches) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      channel.position(start);
+      scanLines(Channels.newInputStream(channel), end - start, sketches);
+    }
+  }
+
+  private void scanLines(InputStream in, long limit, LineSketches sketches) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    byte[] line = new byte[256];
+    int lineLength = 0;
+    boolean afterCarriageReturn = false;
+    long remaining = limit;
+    int read;
+    while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+      remaining -= read;
+      int start = 0;
+      for (int i = 0; i < read; i++) {
+        byte b = buffer[i];
+        if (afterCarriageReturn && b == '\n' && i == start && lineLength == 0) {
+          afterCarriageReturn = false;
+          start = i + 1;
+          continue;
+        }
+        afterCarriageReturn = false;
+        if (b == '\n' || b == '\r') {
+          if (lineLength == 0) {
+            sketches.add(buffer, start, i - start);
+          } else {
+            line = append(line, lineLength, buffer, start, i - start);
+            sketches.add(line, 0, lineLength + i - start);
+            lineLength = 0;
+          }
+          afterCarriageReturn = b == '\r';
+          start = i + 1;
+        }
+      }
+      line = append(line, lineLength, buffer, start, read - start);
+      lineLength += read - start;
+    }
+    if (lineLength > 0) {
+      sketches.add(line, 0, lineLength);
+    }
+  }
+
+  private byte[] append(byte[] line, int lineLength, byte[] bytes, int offset, int length) {
+    if (lineLength + length > line.length) {
+      line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+    }
+    System.arraycopy(bytes, offset, line, lineLength, length);
+    return line;
+  }
+
+  private long hashLine(byte[] bytes, int offset, int length) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = offset; i < offset + length; i++) {
+      byte b = bytes[i];
+      if (ignoreCase && b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private List<String> formatSketches(LineSketches sketches) {
+    List<String> lines = new ArrayList<>();
+    if (sketches.distinct != null) {
+      lines.add(String.valueOf(sketches.distinct.estimate()));
+    }
+    if (sketches.heavy != null) {
+      for (HeavyHitters.Candidate candidate : sketches.heavy.top()) {
+        String line = ignoreCase ? candidate.line().toLowerCase() : candidate.line();
+        lines.add(candidate.count() + " " + line);
+      }
+    }
+    return lines;
+  }
+
+  private void processAdjacentLines(BufferedReader reader, BufferedWriter writer) throws IOException {
+    String groupLine = null;
+    long groupCount = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (groupLine != null && isSameLine(groupLine, line)) {
+        groupCount++;
+        continue;
+      }
+      if (groupLine != null) {
+        writeGroup(groupLine, groupCount, writer);
+      }
+      groupLine = line;
+      groupCount = 1;
+    }
+    if (groupLine != null) {
+      writeGroup(groupLine, groupCount, writer);
+    }
+  }
+
+  private boolean isSameLine(String previous, String current) {
+    return ignoreCase ? previous.equalsIgnoreCase(current) : previous.equals(current);
+  }
+
+  private void writeGroup(String line, long count, BufferedWriter writer) throws IOException {
+    if (filterCondition(count)) {
+      writer.write(formatLine(line, count));
+      writer.newLine();
+    }
   }
 
   private void outputProcessedLines(List<String> lines, String outputFile) throws IOException {
@@ -3,24 +3,119 @@ package com.unixtools.command.filecontent;
 import com.unixtools.core.Command;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Stream;
 
 public class WcCommand implements Command {
   private static final long LARGE_FILE_THRESHOLD = 10 * 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+  private static final long SMALL_FILE_BATCH_BYTES = 8 * 1024 * 1024;
+  private static final int SMALL_FILE_BATCH_COUNT = 256;
+  private static final int STDIN_BUFFER_SIZE = 1024 * 1024;
   private static final String VALID_FLAGS = "lwcm";
   private boolean countLines = false;
   private boolean countWords = false;
   private boolean countBytes = false;
   private boolean countChars = false;
+  private long progressIntervalMillis = -1;
 
   private static class Counters {
-    int lines = 0;
-    int words = 0;
-    int bytes = 0;
-    int characters = 0;
+    private static final boolean[] WHITESPACE = new boolean[256];
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+        ByteOrder.LITTLE_ENDIAN);
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long SPACES = 0x2020202020202020L;
+
+    static {
+      for (char ch : new char[] { ' ', '\t', '\n', '\u000B', '\f', '\r' }) {
+        WHITESPACE[ch] = true;
+      }
+    }
+
+    long lines = 0;
+    long words = 0;
+    long bytes = 0;
+    long characters = 0;
+    boolean inWord = false;
+
+    void count(byte[] buffer, int offset, int length) {
+      int end = offset + length;
+      int wordEnd = offset + (length & ~(Long.BYTES - 1));
+      long lineCount = 0;
+      long wordCount = 0;
+      long continuationCount = 0;
+      long wordStartCarry = inWord ? 0 : 0x80;
+      for (int i = offset; i < wordEnd; i += Long.BYTES) {
+        long chunk = (long) LONG_VIEW.get(buffer, i);
+        long whitespace = whitespaceMask(chunk);
+        long wordStarts = ~whitespace & HIGH_BITS & ((whitespace << 8) | wordStartCarry);
+        lineCount += Long.bitCount(equalMask(chunk, NEWLINES));
+        wordCount += Long.bitCount(wordStarts);
+        continuationCount += Long.bitCount(chunk & ~(chunk << 1) & HIGH_BITS);
+        wordStartCarry = whitespace >>> 56;
+      }
+      boolean word = wordStartCarry == 0;
+      long characterCount = (wordEnd - offset) - continuationCount;
+      for (int i = wordEnd; i < end; i++) {
+        int b = buffer[i] & 0xFF;
+        if (b == '\n') {
+          lineCount++;
+        }
+        if ((b & 0xC0) != 0x80) {
+          characterCount++;
+        }
+        boolean space = WHITESPACE[b];
+        if (!space && !word) {
+          wordCount++;
+        }
+        word = !space;
+      }
+      lines += lineCount;
+      words += wordCount;
+      characters += characterCount;
+      bytes += length;
+      inWord = word;
+    }
+
+    private static long whitespaceMask(long chunk) {
+      long low = chunk & LOW_BITS;
+      long atLeastTab = low + 0x7777777777777777L;
+      long belowShiftOut = ~(low + 0x7272727272727272L);
+      long controlWhitespace = atLeastTab & belowShiftOut & ~chunk & HIGH_BITS;
+      return controlWhitespace | equalMask(chunk, SPACES);
+    }
+
+    private static long equalMask(long chunk, long pattern) {
+      long difference = chunk ^ pattern;
+      return ~(((difference & LOW_BITS) + LOW_BITS) | difference) & HIGH_BITS;
+    }
+
+    void add(Counters other) {
+      lines += other.lines;
+      words += other.words;
+      bytes += other.bytes;
+      characters += other.characters;
+    }
+  }
+
+  private static class FileJob {
+    final String name;
+    final List<Future<Counters>> parts = new ArrayList<>();
+    String error;
+
+    FileJob(String name) {
+      this.name = name;
+    }
   }
 
   @Override
@@ -38,13 +133,20 @@ public class WcCommand implements Command {
       countLines = countWords = countBytes = countChars = true;
     }
 
-    String filePath = filePaths.isEmpty() ? null : filePaths.get(0);
-    processFile(filePath);
+    if (filePaths.isEmpty()) {
+      processStandardInput(new Counters());
+      return;
+    }
+    processFiles(filePaths);
   }
 
   private void parseArguments(String[] args, List<String> flags, List<String> paths) {
-    for (String arg : args) {
-      if (arg.startsWith("-")) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--progress")) {
+        if (i + 1 < args.length)
+          progressIntervalMillis = Math.max(1, (long) (Double.parseDouble(args[++i]) * 1000));
+      } else if (arg.startsWith("-")) {
         for (char flag : arg.substring(1).toCharArray()) {
           flags.add(String.valueOf(flag));
           switch (flag) {
@@ -72,128 +174,197 @@ public class WcCommand implements Command {
     return flags.stream().allMatch(flag -> VALID_FLAGS.contains(flag));
   }
 
-  private void processFile(String filePath) {
-    Counters counters = new Counters();
-
-    if (filePath == null) {
-      processStandardInput(counters);
-      return;
-    }
-
-    Path path = Paths.get(filePath);
-    if (!Files.exists(path) || !Files.isReadable(path)) {
-      System.err.println("File does not exist or is not readable: " + filePath);
-      return;
-    }
-
+  private void processFiles(List<String> filePaths) {
+    List<FileJob> jobs = new ArrayList<>();
+    boolean directoryGiven = false;
+    ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
     try {
-      long fileSize = Files.size(path);
-      if (fileSize >= LARGE_FILE_THRESHOLD) {
-        processLargeFileConcurrently(path, fileSize, counters);
-      } else {
-        processSmallFile(path, counters);
+      List<Path> batch = new ArrayList<>();
+      List<CompletableFuture<Counters>> batchResults = new ArrayList<>();
+      long batchBytes = 0;
+      for (String filePath : filePaths) {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path) || !Files.isReadable(path)) {
+          FileJob job = new FileJob(filePath);
+          job.error = "File does not exist or is not readable: " + filePath;
+          jobs.add(job);
+          continue;
+        }
+        directoryGiven |= Files.isDirectory(path);
+        for (Path file : listFiles(path, jobs)) {
+          FileJob job = new FileJob(file.toString());
+          jobs.add(job);
+          try {
+            long fileSize = Files.size(file);
+            if (fileSize >= LARGE_FILE_THRESHOLD) {
+              job.parts.addAll(submitSegments(file, fileSize, executor));
+              continue;
+            }
+            CompletableFuture<Counters> result = new CompletableFuture<>();
+            job.parts.add(result);
+            batch.add(file);
+            batchResults.add(result);
+            batchBytes += fileSize;
+            if (batchBytes >= SMALL_FILE_BATCH_BYTES || batch.size() >= SMALL_FILE_BATCH_COUNT) {
+              submitBatch(batch, batchResults, executor);
+              batch = new ArrayList<>();
+              batchResults = new ArrayList<>();
+              batchBytes = 0;
+            }
+          } catch (IOException e) {
+            job.error = "Error processing file:" + e.getMessage();
+          }
+        }
       }
-    } catch (IOException e) {
-      System.err.println("Error processing file:" + e.getMessage());
+      if (!batch.isEmpty()) {
+        submitBatch(batch, batchResults, executor);
+      }
+      printResults(jobs, directoryGiven || jobs.size() > 1);
+    } finally {
+      executor.shutdownNow();
     }
   }
 
-  private void countFlagCounters(String line, Counters counters) {
-    if (countLines) {
-      counters.lines++;
+  private List<Path> listFiles(Path path, List<FileJob> jobs) {
+    if (!Files.isDirectory(path)) {
+      return List.of(path);
     }
-    if (countWords) {
-      counters.words += new StringTokenizer(line).countTokens();
+    try (Stream<Path> files = Files.walk(path)) {
+      return files.filter(Files::isRegularFile).sorted().toList();
+    } catch (IOException | UncheckedIOException e) {
+      FileJob job = new FileJob(path.toString());
+      job.error = "Error processing directory: " + e.getMessage();
+      jobs.add(job);
+      return List.of();
     }
-    if (countChars) {
-      counters.characters += line.length() + System.lineSeparator().length();
+  }
+
+  private void submitBatch(List<Path> files, List<CompletableFuture<Counters>> results, ExecutorService executor) {
+    executor.execute(() -> {
+      for (int i = 0; i < files.size(); i++) {
+        try {
+          results.get(i).complete(countFile(files.get(i)));
+        } catch (IOException e) {
+          results.get(i).completeExceptionally(e);
+        }
+      }
+    });
+  }
+
+  private void printResults(List<FileJob> jobs, boolean showNames) {
+    Counters total = new Counters();
+    for (FileJob job : jobs) {
+      if (job.error != null) {
+        System.err.println(job.error);
+        continue;
+      }
+      Counters counters = new Counters();
+      try {
+        for (Future<Counters> part : job.parts) {
+          counters.add(part.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        System.err.println("Error processing file: " + job.name);
+        return;
+      } catch (ExecutionException e) {
+        System.err.println("Error processing file:" + e.getCause().getMessage());
+        continue;
+      }
+      total.add(counters);
+      printCounts(counters, showNames ? job.name : null);
     }
-    if (countBytes) {
-      counters.bytes += line.getBytes(StandardCharsets.UTF_8).length
-          + System.lineSeparator().getBytes(StandardCharsets.UTF_8).length;
+    if (jobs.size() > 1) {
+      printCounts(total, "total");
     }
   }
 
   private void processStandardInput(Counters counters) {
-    try (Scanner scanner = new Scanner(System.in)) {
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        countFlagCounters(line, counters);
-        printCounts(counters);
+    byte[] buffer = new byte[STDIN_BUFFER_SIZE];
+    long nextProgress = progressIntervalMillis > 0 ? System.currentTimeMillis() + progressIntervalMillis : Long.MAX_VALUE;
+    try {
+      int read;
+      while ((read = System.in.read(buffer)) > 0) {
+        counters.count(buffer, 0, read);
+        if (System.currentTimeMillis() >= nextProgress) {
+          System.err.println(formatCounts(counters));
+          nextProgress = System.currentTimeMillis() + progressIntervalMillis;
+        }
       }
+    } catch (IOException e) {
+      System.err.println("Error reading standard input: " + e.getMessage());
+      return;
     }
+    printCounts(counters, null);
   }
 
-  private void processSmallFile(Path path, Counters counters) throws IOException {
-    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        countFlagCounters(line, counters);
+  private Counters countFile(Path path) throws IOException {
+    Counters counters = new Counters();
+    try (InputStream in = Files.newInputStream(path)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        counters.count(buffer, 0, read);
       }
     }
-    printCounts(counters);
+    return counters;
   }
 
-  private void processLargeFileConcurrently(Path path, long fileSize, Counters counters) throws IOException {
-    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-    long segmentSize = fileSize / Runtime.getRuntime().availableProcessors();
-    List<Future<int[]>> futures = new ArrayList<>();
-
-    for (long offset = 0; offset < fileSize; offset += segmentSize) {
-      final long startOffset = offset;
-      final long endOffset = Math.min(offset + segmentSize, fileSize);
-      futures.add(executor.submit(() -> processFileSegment(path, startOffset, endOffset, counters)));
+  private List<Future<Counters>> submitSegments(Path file, long fileSize, ExecutorService executor)
+      throws IOException {
+    long segmentSize = Math.max(1, fileSize / PARALLELISM);
+    List<long[]> segments;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      segments = LineSegments.split(channel, segmentSize);
     }
+    List<Future<Counters>> futures = new ArrayList<>();
+    for (long[] segment : segments) {
+      futures.add(executor.submit(() -> processFileSegment(file, segment[0], segment[1])));
+    }
+    return futures;
+  }
 
-    for (Future<int[]> future : futures) {
-      try {
-        int[] counts = future.get();
-        if (countLines) {
-          counters.lines += counts[0];
-        }
-        if (countWords) {
-          counters.words += counts[1];
-        }
-        if (countBytes) {
-          counters.bytes += counts[2];
-        }
-        if (countChars) {
-          counters.characters += counts[3];
+  private Counters processFileSegment(Path file, long startOffset, long endOffset) throws IOException {
+    Counters counters = new Counters();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long position = startOffset;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (position < endOffset) {
+        ByteBuffer window = ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, endOffset - position));
+        int read = channel.read(window, position);
+        if (read <= 0) {
+          break;
         }
-      } catch (InterruptedException | ExecutionException e) {
-        System.err.println("Error processing file segment: " + e.getMessage());
+        counters.count(buffer, 0, read);
+        position += read;
       }
     }
-
-    executor.shutdown();
-    printCounts(counters);
+    return counters;
   }
 
-  private int[] processFileSegment(Path path, long startOffset, long endOffset, Counters counters) throws IOException {
-    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
-      file.seek(startOffset);
-      String line;
-      while (file.getFilePointer() < endOffset && (line = file.readLine()) != null) {
-        countFlagCounters(line, counters);
-      }
+  private void printCounts(Counters counters, String label) {
+    String row = formatCounts(counters);
+    if (label != null) {
+      System.out.println(row.stripTrailing() + " " + label);
+    } else {
+      System.out.println(row);
     }
-
-    return new int[] { counters.lines, counters.words, counters.bytes, counters.characters };
   }
 
-  private void printCounts(Counters counters) {
+  private String formatCounts(Counters counters) {
+    StringBuilder row = new StringBuilder();
     if (countLines) {
-      System.out.print("Lines: " + counters.lines + " ");
+      row.append("Lines: ").append(counters.lines).append(" ");
     }
     if (countWords) {
-      System.out.print("Words: " + counters.words + " ");
+      row.append("Words: ").append(counters.words).append(" ");
     }
     if (countBytes) {
-      System.out.print("Bytes: " + counters.bytes + " ");
+      row.append("Bytes: ").append(counters.bytes).append(" ");
     }
     if (countChars) {
-      System.out.print("Characters: " + counters.characters);
+      row.append("Characters: ").append(counters.characters);
     }
-    System.out.println();
+    return row.toString();
   }
 }